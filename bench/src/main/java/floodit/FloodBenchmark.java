@@ -0,0 +1,73 @@
+package floodit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of one move, for each board size and each plane/torus and
+ * orthogonal/diagonal setting. <b>engineMove</b> is the flood run by the
+ * controller when the player selects a color, <b>bitboardMove</b> the one used
+ * by the solvers and the hint engine.
+ *
+ * The colors are played in turn from the center dot. When the board is captured,
+ * the game starts again from the same position, so that every size measures the
+ * same mix of moves.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FloodBenchmark {
+
+    @Param({"10", "50", "200", "1000"})
+    private int size;
+
+    @Param({"true", "false"})
+    private boolean plane;
+
+    @Param({"true", "false"})
+    private boolean orthogonal;
+
+    private FloodEngine engineStart;
+    private FloodEngine engine;
+    private BitboardFlood bitboardStart;
+    private BitboardFlood bitboard;
+
+    @Setup
+    public void setUp() {
+        GameModel model = new GameModel(size, 42);
+        model.setPlaneStatus(plane);
+        model.setOrthogonalStatus(orthogonal);
+        engineStart = new FloodEngine(model);
+        engineStart.setHistoryEnabled(false);
+        engineStart.start(size / 2, size / 2);
+        engine = engineStart.copy();
+        bitboardStart = new BitboardFlood(engineStart.getModel());
+        bitboard = bitboardStart.copy();
+    }
+
+    @Benchmark
+    public int engineMove() {
+        if (engine.isFinished()) engine.restore(engineStart);
+        return engine.apply((engine.getModel().getCurrentSelectedColor() + 1) % GameModel.NUMBER_OF_COLORS);
+    }
+
+    @Benchmark
+    public int bitboardMove() {
+        if (bitboard.isFinished()) bitboard = bitboardStart.copy();
+        return bitboard.apply((bitboard.getCurrentSelectedColor() + 1) % GameModel.NUMBER_OF_COLORS);
+    }
+}
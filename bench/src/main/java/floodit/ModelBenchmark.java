@@ -0,0 +1,116 @@
+package floodit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of copying, resetting and saving a <b>GameModel</b>, for each board size
+ * and each plane/torus and orthogonal/diagonal setting. The model is a game
+ * started from the center dot, with the region graph disabled as in the game.
+ *
+ * <b>serializeModel</b> writes the binary save file in the working directory, as
+ * the Quit button does; the other benchmarks stay in memory, <b>serialize</b> and
+ * <b>deserialize</b> with the object serialization used by the previous saves, and
+ * <b>encode</b> and <b>decode</b> with the binary format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelBenchmark {
+
+    @Param({"10", "50", "200", "1000"})
+    private int size;
+
+    @Param({"true", "false"})
+    private boolean plane;
+
+    @Param({"true", "false"})
+    private boolean orthogonal;
+
+    private GameModel model;
+    private byte[] serialized;
+    private ByteBuffer encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        model = new GameModel(size, 42);
+        model.setPlaneStatus(plane);
+        model.setOrthogonalStatus(orthogonal);
+        new FloodEngine(model).start(size / 2, size / 2);
+        serialized = serialize();
+        encoded = encode();
+    }
+
+    @TearDown
+    public void tearDown() {
+        new File(SaveFormat.FILE).delete();
+    }
+
+    @Benchmark
+    public GameModel deepClone() {
+        return model.deepClone();
+    }
+
+    @Benchmark
+    public GameModel cloneModel() {
+        return model.clone();
+    }
+
+    @Benchmark
+    public GameModel reset() {
+        model.reset();
+        return model;
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream output = new ObjectOutputStream(bytes);
+        output.writeObject(model);
+        output.close();
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public void serializeModel() throws IOException {
+        model.serializeModel();
+    }
+
+    @Benchmark
+    public GameModel deserialize() throws IOException, ClassNotFoundException {
+        ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(serialized));
+        return (GameModel) input.readObject();
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        return SaveFormat.encode(model);
+    }
+
+    @Benchmark
+    public GameModel decode() throws IOException {
+        return SaveFormat.decode(encoded.duplicate());
+    }
+}
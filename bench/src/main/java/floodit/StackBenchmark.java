@@ -0,0 +1,109 @@
+package floodit;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the work stack of a flood covering the whole board, for each board
+ * size. <b>linkedStack</b> is the stack the flood used before: a new
+ * <b>GenericLinkedStack</b> of <b>DotInfo</b> views, one node and one view
+ * allocated per dot. <b>intStack</b> is the <b>IntStack</b> of packed indices
+ * the flood now reuses from move to move. Run with -prof gc to compare the
+ * allocation rates (gc.alloc.rate.norm, in bytes per flood).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StackBenchmark {
+
+    @Param({"10", "50", "200", "1000"})
+    private int size;
+
+    private GameModel model;
+    private boolean[] visited;
+    private IntStack stack;
+
+    @Setup
+    public void setUp() {
+        model = new GameModel(size, 42);
+        visited = new boolean[size * size];
+        stack = new IntStack();
+    }
+
+    @Benchmark
+    public int linkedStack() {
+        Arrays.fill(visited, false);
+        Stack<DotInfo> stack = new GenericLinkedStack<DotInfo>();
+        visited[0] = true;
+        stack.push(model.get(0, 0));
+        int count = 0;
+        while (!stack.isEmpty()) {
+            DotInfo dotInfo = stack.pop();
+            int i = dotInfo.getX(), j = dotInfo.getY();
+            count++;
+            if (i > 0 && !visited[(i - 1) * size + j]) {
+                visited[(i - 1) * size + j] = true;
+                stack.push(model.get(i - 1, j));
+            }
+            if (i < size - 1 && !visited[(i + 1) * size + j]) {
+                visited[(i + 1) * size + j] = true;
+                stack.push(model.get(i + 1, j));
+            }
+            if (j > 0 && !visited[i * size + j - 1]) {
+                visited[i * size + j - 1] = true;
+                stack.push(model.get(i, j - 1));
+            }
+            if (j < size - 1 && !visited[i * size + j + 1]) {
+                visited[i * size + j + 1] = true;
+                stack.push(model.get(i, j + 1));
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int intStack() {
+        Arrays.fill(visited, false);
+        stack.clear();
+        visited[0] = true;
+        stack.pushInt(0);
+        int count = 0;
+        while (!stack.isEmpty()) {
+            int dot = stack.popInt();
+            int i = dot / size, j = dot % size;
+            count++;
+            if (i > 0 && !visited[dot - size]) {
+                visited[dot - size] = true;
+                stack.pushInt(dot - size);
+            }
+            if (i < size - 1 && !visited[dot + size]) {
+                visited[dot + size] = true;
+                stack.pushInt(dot + size);
+            }
+            if (j > 0 && !visited[dot - 1]) {
+                visited[dot - 1] = true;
+                stack.pushInt(dot - 1);
+            }
+            if (j < size - 1 && !visited[dot + 1]) {
+                visited[dot + 1] = true;
+                stack.pushInt(dot + 1);
+            }
+        }
+        return count;
+    }
+}
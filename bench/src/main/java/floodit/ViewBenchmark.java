@@ -0,0 +1,80 @@
+package floodit;
+
+import java.awt.GraphicsEnvironment;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of <b>GameView.update</b> after a move, for each board size and each
+ * plane/torus and orthogonal/diagonal setting. The view alternates between the
+ * states before and after one move, and is updated on the Event Dispatch Thread
+ * as in the game, so the measure includes the hand-off to that thread.
+ *
+ * Boards larger than GameView.CANVAS_SIZE are drawn by a <b>BoardCanvas</b>, the
+ * others by a grid of <b>DotButton</b> instances; the system property
+ * floodit.canvas can be passed to the forked JVM to compare both on small boards.
+ * The view needs a display: on a headless machine, run the benchmarks under a
+ * virtual one such as Xvfb.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Thread)
+public class ViewBenchmark {
+
+    @Param({"10", "50", "200", "1000"})
+    private int size;
+
+    @Param({"true", "false"})
+    private boolean plane;
+
+    @Param({"true", "false"})
+    private boolean orthogonal;
+
+    private GameModel[] models;
+    private GameView view;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        if (GraphicsEnvironment.isHeadless()) {
+            throw new IllegalStateException("GameView needs a display");
+        }
+        GameModel model = new GameModel(size, 42);
+        model.setPlaneStatus(plane);
+        model.setOrthogonalStatus(orthogonal);
+        FloodEngine engine = new FloodEngine(model);
+        engine.start(size / 2, size / 2);
+        GameModel before = model.clone();
+        engine.apply((model.getCurrentSelectedColor() + 1) % GameModel.NUMBER_OF_COLORS);
+        models = new GameModel[] {before, model};
+        SwingUtilities.invokeAndWait(() -> view = new GameView(before, null));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        SwingUtilities.invokeAndWait(() -> view.dispose());
+    }
+
+    @Benchmark
+    public void update() throws Exception {
+        GameModel model = models[next ^= 1];
+        SwingUtilities.invokeAndWait(() -> view.update(model));
+    }
+}
@@ -0,0 +1,233 @@
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+/**
+ * The class <b>BatchSimulator</b> plays a large number of games without any user
+ * interface, to evaluate a <b>MovePolicy</b>. Each game is played on a board
+ * generated from a seed derived from the seed of the simulator and the number of
+ * the game, so a run can be reproduced, and the same boards are used for each size
+ * and setting. The games are spread over the threads of a fork-join pool.
+ *
+ * For each board size and each plane/torus and orthogonal/diagonal setting, the
+ * simulator reports the throughput (games and moves per second) and the
+ * distribution of the number of moves per game.
+ */
+public class BatchSimulator {
+
+    /**
+     * A policy that plays a random color, different from the selected one,
+     * the default policy of a simulator
+     */
+    public static final MovePolicy RANDOM_POLICY = policy(Strategy.RANDOM);
+
+    private MovePolicy policy;
+    private long seed;
+    private ForkJoinPool pool;
+
+    /**
+     * Constructor used for initializing a simulator playing RANDOM_POLICY
+     *
+     * @param seed
+     *            the seed from which the boards are generated
+     * @param parallelism
+     *            the number of threads playing games
+     */
+    public BatchSimulator(long seed, int parallelism) {
+        this(RANDOM_POLICY, seed, parallelism);
+    }
+
+    /**
+     * Constructor used for initializing a simulator
+     *
+     * @param policy
+     *            the policy choosing the moves
+     * @param seed
+     *            the seed from which the boards are generated
+     * @param parallelism
+     *            the number of threads playing games
+     */
+    public BatchSimulator(MovePolicy policy, long seed, int parallelism) {
+        this.policy = policy;
+        this.seed = seed;
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Returns a policy playing the moves of a strategy
+     *
+     * @param strategy
+     *            the strategy
+     * @return the policy, named after the strategy
+     */
+    public static MovePolicy policy(Strategy strategy) {
+        return new MovePolicy() {
+            public int nextColor(FloodEngine engine, Random random) {
+                return strategy.nextColor(new BoardView(engine), random);
+            }
+
+            public String toString() {
+                return strategy.toString();
+            }
+        };
+    }
+
+    /**
+     * Returns the seed of the board of a given game
+     *
+     * @param game
+     *            the number of the game
+     * @return the seed of its board
+     */
+    public long boardSeed(long game) {
+        return seed + game * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Plays one game, starting from the top left dot. A game is stopped after
+     * size*size*NUMBER_OF_COLORS moves, in case the policy does not progress.
+     *
+     * @param policy
+     *            the policy choosing the moves
+     * @param size
+     *            the size of the board
+     * @param plane
+     *            true for plane, false for torus
+     * @param orthogonal
+     *            true for orthogonal, false for diagonal
+     * @param game
+     *            the number of the game
+     * @return the number of moves played
+     */
+    public int play(MovePolicy policy, int size, boolean plane, boolean orthogonal, long game) {
+        GameModel model = new GameModel(size, boardSeed(game));
+        model.setPlaneStatus(plane);
+        model.setOrthogonalStatus(orthogonal);
+        FloodEngine engine = new FloodEngine(model);
+        engine.setHistoryEnabled(false);
+        Random random = new Random(boardSeed(game));
+
+        engine.start(0, 0);
+        int limit = size * size * GameModel.NUMBER_OF_COLORS;
+        while (!engine.isFinished() && model.getNumberOfSteps() < limit) {
+            engine.apply(policy.nextColor(engine, random));
+        }
+        return model.getNumberOfSteps();
+    }
+
+    /**
+     * Plays a number of games in parallel with the policy of the simulator,
+     * on boards of one size and setting
+     *
+     * @param size
+     *            the size of the boards
+     * @param plane
+     *            true for plane, false for torus
+     * @param orthogonal
+     *            true for orthogonal, false for diagonal
+     * @param games
+     *            the number of games
+     * @return the statistics of the games
+     */
+    public MoveStatistics run(int size, boolean plane, boolean orthogonal, long games) {
+        return run(policy, size, plane, orthogonal, games);
+    }
+
+    /**
+     * Plays a number of games in parallel with the given policy, on boards of
+     * one size and setting
+     *
+     * @param policy
+     *            the policy choosing the moves
+     * @param size
+     *            the size of the boards
+     * @param plane
+     *            true for plane, false for torus
+     * @param orthogonal
+     *            true for orthogonal, false for diagonal
+     * @param games
+     *            the number of games
+     * @return the statistics of the games
+     */
+    public MoveStatistics run(MovePolicy policy, int size, boolean plane, boolean orthogonal,
+                              long games) {
+        try {
+            return pool.submit(() -> LongStream.range(0, games).parallel().collect(
+                    MoveStatistics::new,
+                    (statistics, game) -> statistics.add(play(policy, size, plane, orthogonal, game)),
+                    MoveStatistics::merge)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation failed", e.getCause());
+        }
+    }
+
+    /**
+     * Plays the given number of games for each size and each setting, and
+     * prints the throughput and the distribution of moves of each series
+     *
+     * @param sizes
+     *            the sizes of the boards
+     * @param games
+     *            the number of games per size and setting
+     * @param out
+     *            the stream the report is printed on
+     */
+    public void report(int[] sizes, long games, PrintStream out) {
+        out.println("Policy " + policy + ", seed " + seed + ", " + pool.getParallelism() + " threads");
+        for (int size : sizes) {
+            for (int mode = 0; mode < 4; mode++) {
+                boolean plane = mode < 2;
+                boolean orthogonal = mode % 2 == 0;
+                long start = System.nanoTime();
+                MoveStatistics statistics = run(size, plane, orthogonal, games);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                out.printf("%nsize %d, %s, %s: %.0f games/s, %.0f moves/s%n", size,
+                        plane ? "plane" : "torus", orthogonal ? "orthogonal" : "diagonal",
+                        statistics.getGames() / seconds, statistics.getMoves() / seconds);
+                out.println(statistics);
+                out.print(statistics.distribution());
+            }
+        }
+    }
+
+    /**
+     * Shuts down the threads of the simulator
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Runs a batch of random games. The parameters are the number of games per
+     * size and setting, followed by the sizes of the boards. The seed and the
+     * number of threads can be set with the system properties floodit.seed and
+     * floodit.threads.
+     *
+     * @param args
+     *            command line parameters
+     */
+    public static void main(String[] args) {
+        long games = 10000;
+        int[] sizes = {10, 14, 18};
+        try {
+            if (args.length > 0) games = Long.parseLong(args[0]);
+            if (args.length > 1) {
+                sizes = new int[args.length - 1];
+                for (int k = 1; k < args.length; k++) sizes[k - 1] = Integer.parseInt(args[k]);
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Usage: batch [games [size ...]]");
+            return;
+        }
+        long seed = Long.getLong("floodit.seed", 0L);
+        int threads = Integer.getInteger("floodit.threads", Runtime.getRuntime().availableProcessors());
+        BatchSimulator simulator = new BatchSimulator(seed, threads);
+        simulator.report(sizes, games, System.out);
+        simulator.shutdown();
+    }
+}
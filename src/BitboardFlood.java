@@ -0,0 +1,397 @@
+/**
+ * The class <b>BitboardFlood</b> is a compact flood engine meant for solvers and
+ * simulations, which apply a very large number of moves. The dots are packed
+ * row-major, the dot (i,j) being bit i*size+j, in bitboards of type long[]: one
+ * for the captured dots and one mask per color. A move grows the captured region
+ * by shifting and masking whole words until it stops changing, so 64 dots are
+ * processed at a time.
+ *
+ * The engine takes a snapshot of a <b>GameModel</b>, including its plane/torus and
+ * orthogonal/diagonal settings, and is then independent of it. Copies share the
+ * color masks, which never change.
+ */
+public class BitboardFlood {
+
+    /**
+     * The size of the board, its number of dots and of words per bitboard
+     */
+    private int size;
+    private int cells;
+    private int words;
+
+    /**
+     * The valid bits of the last word of a bitboard
+     */
+    private long lastWordMask;
+
+    /**
+     * The settings of the game
+     */
+    private boolean plane;
+    private boolean orthogonal;
+
+    /**
+     * One bitboard per color, with the dots of that color. Shared by copies.
+     */
+    private long[][] colorMasks;
+
+    /**
+     * The dots of the first and of the last column. Shared by copies.
+     */
+    private long[] firstColumn;
+    private long[] lastColumn;
+
+    /**
+     * The captured dots
+     */
+    private long[] captured;
+
+    /**
+     * Scratch bitboards used by the dilation
+     */
+    private long[] grown;
+    private long[] horizontal;
+
+    /**
+     * The current selection color and number of captured dots
+     */
+    private int currentSelectedColor;
+    private int numberCaptured;
+
+    /**
+     * Constructor used for taking a snapshot of a model.
+     *
+     * @param model
+     *            the model of the game
+     */
+    public BitboardFlood(GameModel model) {
+        size = model.getSize();
+        cells = size * size;
+        words = (cells + 63) >>> 6;
+        lastWordMask = -1L >>> (words * 64 - cells);
+        plane = model.getPlaneStatus();
+        orthogonal = model.getOrthogonalStatus();
+
+        colorMasks = new long[GameModel.NUMBER_OF_COLORS][words];
+        firstColumn = new long[words];
+        lastColumn = new long[words];
+        captured = new long[words];
+        for (int i = 0; i < size; i++) {
+            setBit(firstColumn, i * size);
+            setBit(lastColumn, i * size + size - 1);
+            for (int j = 0; j < size; j++) {
+                setBit(colorMasks[model.getColor(i, j)], i * size + j);
+                if (model.isCaptured(i, j)) {
+                    setBit(captured, i * size + j);
+                    numberCaptured++;
+                }
+            }
+        }
+        currentSelectedColor = model.getCurrentSelectedColor();
+        grown = new long[words];
+        horizontal = new long[words];
+    }
+
+    /**
+     * Constructor used by <b>copy</b>. The color masks are shared.
+     */
+    private BitboardFlood(BitboardFlood other) {
+        size = other.size;
+        cells = other.cells;
+        words = other.words;
+        lastWordMask = other.lastWordMask;
+        plane = other.plane;
+        orthogonal = other.orthogonal;
+        colorMasks = other.colorMasks;
+        firstColumn = other.firstColumn;
+        lastColumn = other.lastColumn;
+        captured = other.captured.clone();
+        currentSelectedColor = other.currentSelectedColor;
+        numberCaptured = other.numberCaptured;
+        grown = new long[words];
+        horizontal = new long[words];
+    }
+
+    /**
+     * Returns a copy of this engine, which can be played independently
+     *
+     * @return a copy of this engine
+     */
+    public BitboardFlood copy() {
+        return new BitboardFlood(this);
+    }
+
+    /**
+     * Captures the dot (row,column) as the initial dot, and selects its color
+     *
+     * @param row
+     *            the row of the dot
+     * @param column
+     *            the column of the dot
+     */
+    public void captureInitialDot(int row, int column) {
+        int index = row * size + column;
+        currentSelectedColor = getColor(index);
+        if (!getBit(captured, index)) {
+            setBit(captured, index);
+            numberCaptured++;
+        }
+    }
+
+    /**
+     * <b>apply</b> selects the given color and captures all the dots of that
+     * color connected to the captured region.
+     *
+     * @param color
+     *            the selected color
+     * @return the number of dots captured
+     */
+    public int apply(int color) {
+        currentSelectedColor = color;
+        long[] mask = colorMasks[color];
+        int total = 0;
+        while (true) {
+            dilate(captured, grown);
+            int added = 0;
+            for (int w = 0; w < words; w++) {
+                long fresh = grown[w] & mask[w] & ~captured[w];
+                if (fresh != 0) {
+                    captured[w] |= fresh;
+                    added += Long.bitCount(fresh);
+                }
+            }
+            if (added == 0) break;
+            total += added;
+        }
+        numberCaptured += total;
+        return total;
+    }
+
+    /**
+     * Returns the number of dots the given color would capture if selected,
+     * without modifying this engine.
+     *
+     * @param color
+     *            the color
+     * @return the number of dots captured by that color
+     */
+    public int gain(int color) {
+        long[] saved = captured.clone();
+        int saveColor = currentSelectedColor;
+        int gain = apply(color);
+        captured = saved;
+        currentSelectedColor = saveColor;
+        numberCaptured -= gain;
+        return gain;
+    }
+
+    /**
+     * Writes the captured dots and the selected color back to a model of the
+     * same board
+     *
+     * @param model
+     *            the model to update
+     */
+    public void writeTo(GameModel model) {
+        for (int index = 0; index < cells; index++) {
+            if (getBit(captured, index) && !model.isCaptured(index / size, index % size)) {
+                model.capture(index / size, index % size);
+            }
+        }
+        model.setCurrentSelectedColor(currentSelectedColor);
+    }
+
+    /**
+     * Getter method for the size of the board
+     *
+     * @return the size of the board
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Getter method for the plane/torus setting
+     *
+     * @return true (plane) or false (torus)
+     */
+    public boolean getPlaneStatus() {
+        return plane;
+    }
+
+    /**
+     * Getter method for the orthogonal/diagonal setting
+     *
+     * @return true (orthogonal) or false (diagonal)
+     */
+    public boolean getOrthogonalStatus() {
+        return orthogonal;
+    }
+
+    /**
+     * returns the color of the dot (i,j), the selected color if it is captured
+     *
+     * @param i
+     *            the row of the dot
+     * @param j
+     *            the column of the dot
+     * @return the color of the dot
+     */
+    public int getColor(int i, int j) {
+        int index = i * size + j;
+        return getBit(captured, index) ? currentSelectedColor : getColor(index);
+    }
+
+    /**
+     * returns true is the dot (i,j) is captured, false otherwise
+     *
+     * @param i
+     *            the row of the dot
+     * @param j
+     *            the column of the dot
+     * @return the status of the dot
+     */
+    public boolean isCaptured(int i, int j) {
+        return getBit(captured, i * size + j);
+    }
+
+    /**
+     * Getter method for the current selection color
+     *
+     * @return the current selection color
+     */
+    public int getCurrentSelectedColor() {
+        return currentSelectedColor;
+    }
+
+    /**
+     * Getter method for the number of captured dots
+     *
+     * @return the number of captured dots
+     */
+    public int getNumberCaptured() {
+        return numberCaptured;
+    }
+
+    /**
+     * returns true if all the dots are captured
+     *
+     * @return true if the game is finished, false otherwise
+     */
+    public boolean isFinished() {
+        return numberCaptured == cells;
+    }
+
+    /**
+     * Returns the bitboard of the captured dots. It must not be modified.
+     *
+     * @return the captured dots, the dot (i,j) being bit i*size+j
+     */
+    public long[] getCaptured() {
+        return captured;
+    }
+
+    /**
+     * Returns the bitboard of the dots of the given color. It must not be modified.
+     *
+     * @param color
+     *            the color
+     * @return the dots of that color, the dot (i,j) being bit i*size+j
+     */
+    public long[] getColorMask(int color) {
+        return colorMasks[color];
+    }
+
+    /**
+     * Stores in to the dots of from and their neighbours, according to the
+     * settings of the game
+     *
+     * @param from
+     *            the bitboard to dilate
+     * @param to
+     *            the bitboard receiving the result
+     */
+    public void dilate(long[] from, long[] to) {
+        long[] row = orthogonal ? to : horizontal;
+        System.arraycopy(from, 0, row, 0, words);
+        orShift(from, 1, firstColumn, true, row);
+        orShift(from, -1, lastColumn, true, row);
+        if (!plane) {
+            orShift(from, -(size - 1), firstColumn, false, row);
+            orShift(from, size - 1, lastColumn, false, row);
+        }
+        row[words - 1] &= lastWordMask;
+
+        long[] source = orthogonal ? from : horizontal;
+        if (!orthogonal) System.arraycopy(horizontal, 0, to, 0, words);
+        orShift(source, size, null, false, to);
+        orShift(source, -size, null, false, to);
+        if (!plane) {
+            orShift(source, size * (size - 1), null, false, to);
+            orShift(source, -size * (size - 1), null, false, to);
+        }
+        to[words - 1] &= lastWordMask;
+    }
+
+    /**
+     * Ors into to the bitboard from shifted by k bits towards the higher
+     * indices (k &gt; 0) or the lower indices (k &lt; 0). If mask is not null,
+     * the shifted bits are kept only outside of mask (exclude is true) or
+     * inside of mask (exclude is false).
+     */
+    private void orShift(long[] from, int k, long[] mask, boolean exclude, long[] to) {
+        int wordShift = Math.abs(k) >>> 6;
+        int bitShift = Math.abs(k) & 63;
+        for (int w = 0; w < words; w++) {
+            long value;
+            if (k >= 0) {
+                int s = w - wordShift;
+                if (s < 0) continue;
+                value = from[s] << bitShift;
+                if (bitShift != 0 && s > 0) value |= from[s - 1] >>> (64 - bitShift);
+            } else {
+                int s = w + wordShift;
+                if (s >= words) break;
+                value = from[s] >>> bitShift;
+                if (bitShift != 0 && s + 1 < words) value |= from[s + 1] << (64 - bitShift);
+            }
+            if (mask != null) value &= exclude ? ~mask[w] : mask[w];
+            to[w] |= value;
+        }
+    }
+
+    /**
+     * returns the original color of the dot at the packed index
+     */
+    private int getColor(int index) {
+        for (int color = 0; color < GameModel.NUMBER_OF_COLORS; color++) {
+            if (getBit(colorMasks[color], index)) return color;
+        }
+        return -1;
+    }
+
+    private static boolean getBit(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void setBit(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Builds a String representation of the captured dots
+     *
+     * @return String representation of the engine
+     */
+    public String toString() {
+        StringBuffer b = new StringBuffer();
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                b.append(getColor(i, j) + (isCaptured(i, j) ? "c" : " "));
+            }
+            b.append("\n");
+        }
+        return "Current Selected Color: " + currentSelectedColor +
+                "\nNumber Captured: " + numberCaptured + "\n" + b.toString();
+    }
+}
@@ -0,0 +1,423 @@
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Toolkit;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+
+/**
+ * The class <b>BoardCanvas</b> draws the whole board in a single component, as an
+ * alternative to the grid of <b>DotButton</b> instances, which does not scale to
+ * large boards. The cells are drawn from the ball images of the directory ``data'',
+ * scaled once to the size of a cell and cached. Only the cells intersecting the
+ * clip region are painted, and a click is mapped to its cell arithmetically.
+ *
+ * On <b>update</b>, the colors are compared to the ones last drawn, and only the
+ * rectangle enclosing the changed cells is repainted.
+ *
+ * The controller is notified when the mouse moves to another cell or leaves the
+ * board, and the cells a move would capture can be lightened with
+ * <b>setPreview</b>.
+ *
+ * The board is meant to be shown in a <b>JScrollPane</b>, whose viewport can be
+ * smaller than the board: only the visible cells are then painted. The board can
+ * be zoomed, with the mouse wheel while Control is pressed or with <b>zoom</b>.
+ * Below LOD_CELL_SIZE pixels, cells are drawn as flat squares of the main color
+ * of their ball, one rectangle per run of cells of the same color.
+ */
+public class BoardCanvas extends JComponent implements Scrollable {
+
+    /**
+     * The main colors of the balls, used if an image cannot be loaded
+     */
+    public static final Color[] FLAT_COLORS = {
+        new Color(0xB1B1B1), new Color(0xF6C134), new Color(0x65CAFD),
+        new Color(0x94DD2B), new Color(0x8C76FE), new Color(0xE52733)
+    };
+
+    /**
+     * The smallest and largest sizes of a cell in pixels
+     */
+    public static final int MIN_CELL_SIZE = 1;
+    public static final int MAX_CELL_SIZE = 80;
+
+    /**
+     * Cells smaller than this size in pixels are drawn as flat squares
+     */
+    public static final int LOD_CELL_SIZE = 8;
+
+    /**
+     * The veil painted over the cells of the previewed move
+     */
+    public static final Color PREVIEW_COLOR = new Color(255, 255, 255, 128);
+
+    /**
+     * The images of the directories ``S'', ``M'' and ``N'', from the smallest
+     */
+    private static final String[] DIRECTORIES = {"S", "M", "N"};
+    private static final BufferedImage[][] images = new BufferedImage[DIRECTORIES.length][];
+
+    /**
+     * The scaled images, by cell size. Shared by all the boards.
+     */
+    private static final Map<Integer, BufferedImage[]> sprites = new HashMap<Integer, BufferedImage[]>();
+
+    private GameController gameController;
+
+    /**
+     * The size of the board, and the colors of its cells last drawn
+     */
+    private int size;
+    private byte[] shown;
+
+    /**
+     * The size of a cell in pixels, and the scaled images of that size
+     */
+    private int cellSize;
+    private BufferedImage[] cellImages;
+
+    /**
+     * The cells the previewed move would capture, or null, and the cell
+     * hovered, or -1
+     */
+    private long[] preview;
+    private int hoveredRow = -1;
+    private int hoveredColumn = -1;
+
+    /**
+     * Constructor used for initializing the board
+     *
+     * @param model
+     *            the model of the game
+     * @param gameController
+     *            the controller, notified of the clicks on cells
+     * @param cellSize
+     *            the size of a cell in pixels
+     */
+    public BoardCanvas(GameModel model, GameController gameController, int cellSize) {
+        this.gameController = gameController;
+        this.cellSize = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, cellSize));
+        cellImages = getSprites(this.cellSize);
+        setOpaque(true);
+        setBackground(Color.WHITE);
+        update(model);
+        MouseAdapter mouse = new MouseAdapter() {
+            public void mousePressed(MouseEvent e) {
+                if (SwingUtilities.isLeftMouseButton(e)) clicked(e.getX(), e.getY());
+            }
+
+            public void mouseMoved(MouseEvent e) {
+                hovered(e.getX(), e.getY());
+            }
+
+            public void mouseExited(MouseEvent e) {
+                hovered(-1, -1);
+            }
+
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                if (e.isControlDown()) {
+                    zoom(e.getWheelRotation() < 0 ? 1 : -1, e.getPoint());
+                } else if (getParent() != null) {
+                    // let the scroll pane scroll
+                    getParent().dispatchEvent(SwingUtilities.convertMouseEvent(
+                            BoardCanvas.this, e, getParent()));
+                }
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    /**
+     * Getter method for the size of a cell in pixels
+     *
+     * @return the size of a cell
+     */
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Zooms in or out by one step, keeping the cell under the anchor point
+     * at the same place in the viewport
+     *
+     * @param steps
+     *            the number of steps, positive to zoom in and negative to
+     *            zoom out
+     * @param anchor
+     *            the fixed point, in the coordinates of the board
+     */
+    public void zoom(int steps, Point anchor) {
+        int next = cellSize;
+        for (int k = 0; k < Math.abs(steps); k++) {
+            next = steps > 0 ? Math.max(next + 1, next * 5 / 4) : Math.min(next - 1, next * 4 / 5);
+        }
+        next = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, next));
+        if (next == cellSize) return;
+
+        double anchorColumn = (double) anchor.x / cellSize;
+        double anchorRow = (double) anchor.y / cellSize;
+        cellSize = next;
+        cellImages = getSprites(cellSize);
+        setSize(getPreferredSize());
+        revalidate();
+        if (getParent() instanceof JViewport) {
+            JViewport viewport = (JViewport) getParent();
+            Point position = viewport.getViewPosition();
+            int x = (int) Math.round(anchorColumn * cellSize) - (anchor.x - position.x);
+            int y = (int) Math.round(anchorRow * cellSize) - (anchor.y - position.y);
+            Dimension extent = viewport.getExtentSize();
+            x = Math.max(0, Math.min(x, getWidth() - extent.width));
+            y = Math.max(0, Math.min(y, getHeight() - extent.height));
+            viewport.setViewPosition(new Point(x, y));
+        }
+        repaint();
+    }
+
+    /**
+     * Zooms in or out by one step around the center of the visible part of
+     * the board
+     *
+     * @param steps
+     *            the number of steps, positive to zoom in and negative to
+     *            zoom out
+     */
+    public void zoom(int steps) {
+        Rectangle visible = getVisibleRect();
+        zoom(steps, new Point(visible.x + visible.width / 2, visible.y + visible.height / 2));
+    }
+
+    /**
+     * Updates the board to the current state of the model, repainting the
+     * cells whose color changed
+     *
+     * @param model
+     *            the model of the game
+     */
+    public void update(GameModel model) {
+        if (shown == null || size != model.getSize()) {
+            size = model.getSize();
+            shown = new byte[size * size];
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    shown[i * size + j] = (byte) model.getColor(i, j);
+                }
+            }
+            revalidate();
+            repaint();
+            return;
+        }
+        int top = size, left = size, bottom = -1, right = -1;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                byte color = (byte) model.getColor(i, j);
+                if (shown[i * size + j] != color) {
+                    shown[i * size + j] = color;
+                    top = Math.min(top, i);
+                    bottom = Math.max(bottom, i);
+                    left = Math.min(left, j);
+                    right = Math.max(right, j);
+                }
+            }
+        }
+        if (bottom >= 0) {
+            repaint(left * cellSize, top * cellSize,
+                    (right - left + 1) * cellSize, (bottom - top + 1) * cellSize);
+        }
+    }
+
+    /**
+     * Lightens the cells a move would capture, or none
+     *
+     * @param dots
+     *            the cells, the cell (i,j) being bit i*size+j, or null
+     */
+    public void setPreview(long[] dots) {
+        if (preview == null && dots == null) return;
+        preview = dots;
+        repaint();
+    }
+
+    public Dimension getPreferredSize() {
+        return new Dimension(size * cellSize, size * cellSize);
+    }
+
+    /**
+     * Paints the cells intersecting the clip region
+     */
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        int firstRow = Math.max(0, clip.y / cellSize);
+        int lastRow = Math.min(size - 1, (clip.y + clip.height - 1) / cellSize);
+        int firstColumn = Math.max(0, clip.x / cellSize);
+        int lastColumn = Math.min(size - 1, (clip.x + clip.width - 1) / cellSize);
+        if (cellSize < LOD_CELL_SIZE) {
+            for (int i = firstRow; i <= lastRow; i++) {
+                int j = firstColumn;
+                while (j <= lastColumn) {
+                    byte color = shown[i * size + j];
+                    int end = j + 1;
+                    while (end <= lastColumn && shown[i * size + end] == color) end++;
+                    g.setColor(FLAT_COLORS[color]);
+                    g.fillRect(j * cellSize, i * cellSize, (end - j) * cellSize, cellSize);
+                    j = end;
+                }
+            }
+        } else {
+            for (int i = firstRow; i <= lastRow; i++) {
+                for (int j = firstColumn; j <= lastColumn; j++) {
+                    g.drawImage(cellImages[shown[i * size + j]], j * cellSize, i * cellSize, null);
+                }
+            }
+        }
+        if (preview != null) {
+            g.setColor(PREVIEW_COLOR);
+            for (int i = firstRow; i <= lastRow; i++) {
+                int j = firstColumn;
+                while (j <= lastColumn) {
+                    if (!inPreview(i * size + j)) {
+                        j++;
+                        continue;
+                    }
+                    int end = j + 1;
+                    while (end <= lastColumn && inPreview(i * size + end)) end++;
+                    g.fillRect(j * cellSize, i * cellSize, (end - j) * cellSize, cellSize);
+                    j = end;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if the cell at the packed index is in the preview
+     */
+    private boolean inPreview(int index) {
+        return (preview[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * The viewport is as large as the board, within the size of the screen
+     */
+    public Dimension getPreferredScrollableViewportSize() {
+        Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+        return new Dimension(Math.min(size * cellSize, screen.width - 100),
+                Math.min(size * cellSize, screen.height - 300));
+    }
+
+    public int getScrollableUnitIncrement(Rectangle visible, int orientation, int direction) {
+        return cellSize;
+    }
+
+    public int getScrollableBlockIncrement(Rectangle visible, int orientation, int direction) {
+        int extent = orientation == SwingConstants.VERTICAL ? visible.height : visible.width;
+        return Math.max(cellSize, extent - cellSize);
+    }
+
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+
+    /**
+     * Notifies the controller of a click on a cell
+     */
+    private void clicked(int x, int y) {
+        if (gameController == null || x < 0 || y < 0) return;
+        int row = y / cellSize;
+        int column = x / cellSize;
+        if (row < size && column < size) gameController.dotClicked(row, column);
+    }
+
+    /**
+     * Notifies the controller when the mouse moves to another cell, or
+     * leaves the board
+     */
+    private void hovered(int x, int y) {
+        if (gameController == null) return;
+        int row = x < 0 || y < 0 ? -1 : y / cellSize;
+        int column = x < 0 || y < 0 ? -1 : x / cellSize;
+        if (row >= size || column >= size) row = column = -1;
+        if (row == hoveredRow && column == hoveredColumn) return;
+        hoveredRow = row;
+        hoveredColumn = column;
+        if (row < 0) {
+            gameController.hoverEnded();
+        } else {
+            gameController.dotHovered(row, column);
+        }
+    }
+
+    /**
+     * Returns the images of the balls scaled to the given size, from the
+     * smallest image at least as large, or null below LOD_CELL_SIZE
+     */
+    private static synchronized BufferedImage[] getSprites(int cellSize) {
+        if (cellSize < LOD_CELL_SIZE) return null;
+        BufferedImage[] scaled = sprites.get(cellSize);
+        if (scaled != null) return scaled;
+        scaled = new BufferedImage[GameModel.NUMBER_OF_COLORS];
+        for (int color = 0; color < GameModel.NUMBER_OF_COLORS; color++) {
+            BufferedImage image = null;
+            for (int d = 0; d < DIRECTORIES.length; d++) {
+                image = getImage(d, color);
+                if (image != null && image.getWidth() >= cellSize) break;
+            }
+            scaled[color] = new BufferedImage(cellSize, cellSize, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = scaled[color].createGraphics();
+            if (image != null) {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(image, 0, 0, cellSize, cellSize, null);
+            } else {
+                g.setColor(FLAT_COLORS[color]);
+                g.fillOval(0, 0, cellSize, cellSize);
+            }
+            g.dispose();
+        }
+        sprites.put(cellSize, scaled);
+        return scaled;
+    }
+
+    /**
+     * Loads an image of the directory ``data'', or returns null if it cannot
+     * be read
+     */
+    private static BufferedImage getImage(int directory, int color) {
+        if (images[directory] == null) {
+            images[directory] = new BufferedImage[GameModel.NUMBER_OF_COLORS];
+        }
+        if (images[directory][color] == null) {
+            try {
+                images[directory][color] = ImageIO.read(
+                        new File("data/" + DIRECTORIES[directory] + "/ball-" + color + ".png"));
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        return images[directory][color];
+    }
+}
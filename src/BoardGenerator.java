@@ -0,0 +1,107 @@
+import java.util.SplittableRandom;
+
+/**
+ * The class <b>BoardGenerator</b> generates the colors of the board of a given
+ * seed and size. The board is cut into square tiles of TILE_SIZE dots, numbered
+ * row-major, and each tile is generated from its own seed, drawn in order from a
+ * generator of the seed of the board. A tile can thus be generated alone, in any
+ * order and on any thread, and the board only depends on its seed and size.
+ *
+ * <b>GameModel</b> generates all the tiles at once, in parallel, and
+ * <b>TiledBoard</b> generates each tile the first time it is read.
+ */
+public class BoardGenerator {
+
+    /**
+     * The size of a tile
+     */
+    public static final int TILE_SIZE = 64;
+
+    /**
+     * The number of colors drawn from one random int, as the digits of a
+     * number below NUMBER_OF_COLORS^COLORS_PER_DRAW
+     */
+    private static final int COLORS_PER_DRAW = 11;
+    private static final int DRAW_BOUND = 362797056;
+
+    private int size;
+    private int tilesPerSide;
+
+    /**
+     * The seeds of the tiles
+     */
+    private long[] tileSeeds;
+
+    /**
+     * Constructor used for initializing the generator of a board
+     *
+     * @param seed
+     *            the seed of the board
+     * @param size
+     *            the size of the board
+     */
+    public BoardGenerator(long seed, int size) {
+        this.size = size;
+        tilesPerSide = (size + TILE_SIZE - 1) / TILE_SIZE;
+        tileSeeds = new long[tilesPerSide * tilesPerSide];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int t = 0; t < tileSeeds.length; t++) {
+            tileSeeds[t] = random.nextLong();
+        }
+    }
+
+    /**
+     * Getter method for the number of tiles on a side of the board
+     *
+     * @return the number of tiles per row and per column
+     */
+    public int getTilesPerSide() {
+        return tilesPerSide;
+    }
+
+    /**
+     * Returns the number of rows (or columns) of the tiles of a given row (or
+     * column) of tiles: TILE_SIZE, except for the last one
+     *
+     * @param tile
+     *            the row or column of the tile
+     * @return its number of rows or columns
+     */
+    public int getTileExtent(int tile) {
+        return Math.min(TILE_SIZE, size - tile * TILE_SIZE);
+    }
+
+    /**
+     * Generates the colors of a tile, row by row
+     *
+     * @param tileRow
+     *            the row of the tile
+     * @param tileColumn
+     *            the column of the tile
+     * @param colors
+     *            the array receiving the colors
+     * @param offset
+     *            the index of the first dot of the tile in the array
+     * @param stride
+     *            the distance in the array between two rows of the tile
+     */
+    public void fillTile(int tileRow, int tileColumn, byte[] colors, int offset, int stride) {
+        SplittableRandom random = new SplittableRandom(tileSeeds[tileRow * tilesPerSide + tileColumn]);
+        int rows = getTileExtent(tileRow);
+        int columns = getTileExtent(tileColumn);
+        int draw = 0;
+        int left = 0;
+        for (int i = 0; i < rows; i++) {
+            int k = offset + i * stride;
+            for (int j = 0; j < columns; j++, k++) {
+                if (left == 0) {
+                    draw = random.nextInt(DRAW_BOUND);
+                    left = COLORS_PER_DRAW;
+                }
+                colors[k] = (byte) (draw % GameModel.NUMBER_OF_COLORS);
+                draw /= GameModel.NUMBER_OF_COLORS;
+                left--;
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * The class <b>BoardView</b> is a read-only view of a game played by a
+ * <b>FloodEngine</b>, given to a <b>Strategy</b> to choose its next color. It
+ * offers the getters of <b>GameModel</b>, and the number of dots each color
+ * would capture, but no way to modify the game.
+ */
+public class BoardView {
+
+    private FloodEngine engine;
+
+    /**
+     * Constructor used for initializing the view of a game
+     *
+     * @param engine
+     *            the engine playing the game
+     */
+    public BoardView(FloodEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Getter method for the size of the board
+     *
+     * @return the size of the board
+     */
+    public int getSize() {
+        return engine.getModel().getSize();
+    }
+
+    /**
+     * returns the color of a given dot, the selected color if it is captured
+     *
+     * @param i
+     *            the x coordinate of the dot
+     * @param j
+     *            the y coordinate of the dot
+     * @return the color of the dot at location (i,j)
+     */
+    public int getColor(int i, int j) {
+        return engine.getModel().getColor(i, j);
+    }
+
+    /**
+     * returns true is the dot is captured, false otherwise
+     *
+     * @param i
+     *            the x coordinate of the dot
+     * @param j
+     *            the y coordinate of the dot
+     * @return the status of the dot at location (i,j)
+     */
+    public boolean isCaptured(int i, int j) {
+        return engine.getModel().isCaptured(i, j);
+    }
+
+    /**
+     * Getter method for the selected color
+     *
+     * @return the selected color
+     */
+    public int getCurrentSelectedColor() {
+        return engine.getModel().getCurrentSelectedColor();
+    }
+
+    /**
+     * Getter method for the number of steps played
+     *
+     * @return the number of steps
+     */
+    public int getNumberOfSteps() {
+        return engine.getModel().getNumberOfSteps();
+    }
+
+    /**
+     * Getter method for the number of captured dots
+     *
+     * @return the number of captured dots
+     */
+    public int getNumberCaptured() {
+        return engine.getModel().getNumberCaptured();
+    }
+
+    /**
+     * Getter method for the plane/torus setting
+     *
+     * @return true for plane, false for torus
+     */
+    public boolean getPlaneStatus() {
+        return engine.getModel().getPlaneStatus();
+    }
+
+    /**
+     * Getter method for the orthogonal/diagonal setting
+     *
+     * @return true for orthogonal, false for diagonal
+     */
+    public boolean getOrthogonalStatus() {
+        return engine.getModel().getOrthogonalStatus();
+    }
+
+    /**
+     * returns true if all the dots are captured
+     *
+     * @return true if the game is finished, false otherwise
+     */
+    public boolean isFinished() {
+        return engine.isFinished();
+    }
+
+    /**
+     * Returns the number of dots of the given color next to the captured region
+     *
+     * @param color
+     *            the color
+     * @return the number of frontier dots of that color
+     */
+    public int getFrontierSize(int color) {
+        return engine.getFrontierSize(color);
+    }
+
+    /**
+     * Returns the number of dots the given color would capture if selected
+     *
+     * @param color
+     *            the color
+     * @return the number of dots captured by that color, 0 for the
+     *         selected color
+     */
+    public int getGain(int color) {
+        return engine.getGain(color);
+    }
+}
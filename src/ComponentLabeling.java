@@ -0,0 +1,313 @@
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * The class <b>ComponentLabeling</b> labels the connected components of the board
+ * of a <b>GameModel</b>: maximal groups of connected dots that are either all
+ * captured, or all uncaptured and of the same color, according to the plane/torus
+ * and orthogonal/diagonal settings of the model.
+ *
+ * The labeling runs in parallel on large boards. The board is cut into square
+ * tiles of TILE_SIZE dots, and the components inside each tile are labeled
+ * concurrently. The dots of the border of each tile are then joined to their
+ * neighbours in the other tiles, wrapping around on a torus, in a concurrent
+ * union-find: roots are linked by compare-and-set, always to the smaller root,
+ * and paths are halved while searching. Finally, the components are numbered
+ * from 0, tile by tile.
+ *
+ * The model must not be modified during the labeling.
+ */
+public class ComponentLabeling {
+
+    /**
+     * The size of a tile labeled by one task
+     */
+    public static final int TILE_SIZE = 128;
+
+    private int size;
+    private boolean plane;
+    private boolean orthogonal;
+    private int tilesPerSide;
+
+    /**
+     * The color of each dot, or NUMBER_OF_COLORS if it is captured
+     */
+    private byte[] colors;
+    private BitSet captured;
+
+    /**
+     * The union-find forest of the dots, each root being the smallest dot of
+     * its tree
+     */
+    private AtomicIntegerArray parent;
+
+    /**
+     * The component of each dot, the dot (i,j) being at index i*size+j
+     */
+    private int[] label;
+
+    /**
+     * The number of components, and the color and number of dots of each
+     */
+    private int componentCount;
+    private int[] componentColor;
+    private int[] componentSize;
+
+    /**
+     * Constructor used for labeling the board of a model
+     *
+     * @param model
+     *            the model of the game
+     */
+    public ComponentLabeling(GameModel model) {
+        size = model.getSize();
+        plane = model.getPlaneStatus();
+        orthogonal = model.getOrthogonalStatus();
+        colors = model.getColorArray();
+        captured = model.getCapturedSet();
+        tilesPerSide = (size + TILE_SIZE - 1) / TILE_SIZE;
+        int tiles = tilesPerSide * tilesPerSide;
+        parent = new AtomicIntegerArray(size * size);
+
+        tiles().forEach(this::labelTile);
+        tiles().forEach(this::stitchTile);
+
+        // the roots of each tile are numbered after the ones of the previous tiles
+        int[] first = new int[tiles + 1];
+        tiles().forEach(t -> first[t + 1] = countRoots(t));
+        for (int t = 0; t < tiles; t++) first[t + 1] += first[t];
+        componentCount = first[tiles];
+        label = new int[size * size];
+        tiles().forEach(t -> numberRoots(t, first[t]));
+        tiles().forEach(this::labelDots);
+        parent = null;
+
+        componentColor = new int[componentCount];
+        componentSize = new int[componentCount];
+        for (int dot = 0; dot < label.length; dot++) {
+            componentSize[label[dot]]++;
+        }
+        for (int dot = 0; dot < label.length; dot++) {
+            componentColor[label[dot]] = captured.get(dot) ? model.getCurrentSelectedColor() : colors[dot];
+        }
+    }
+
+    /**
+     * Getter method for the number of components
+     *
+     * @return the number of components
+     */
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    /**
+     * Returns the component of the dot (i,j)
+     *
+     * @param i
+     *            the row of the dot
+     * @param j
+     *            the column of the dot
+     * @return the number of its component
+     */
+    public int getComponent(int i, int j) {
+        return label[i * size + j];
+    }
+
+    /**
+     * Returns the color of the dots of a component, the selected color if they
+     * are captured
+     *
+     * @param component
+     *            the number of the component
+     * @return its color
+     */
+    public int getComponentColor(int component) {
+        return componentColor[component];
+    }
+
+    /**
+     * Returns the number of dots of a component
+     *
+     * @param component
+     *            the number of the component
+     * @return its number of dots
+     */
+    public int getComponentSize(int component) {
+        return componentSize[component];
+    }
+
+    /**
+     * Getter method for the components of all the dots, packed row-major.
+     * Used by <b>RegionGraph</b>; must not be modified.
+     *
+     * @return the component of each dot
+     */
+    int[] getLabels() {
+        return label;
+    }
+
+    /**
+     * Returns the stream of the tiles, parallel if there are several
+     */
+    private IntStream tiles() {
+        IntStream range = IntStream.range(0, tilesPerSide * tilesPerSide);
+        return tilesPerSide > 1 ? range.parallel() : range;
+    }
+
+    /**
+     * Labels the components inside a tile, each dot pointing to the first dot
+     * of its component in the tile
+     */
+    private void labelTile(int tile) {
+        int top = (tile / tilesPerSide) * TILE_SIZE;
+        int left = (tile % tilesPerSide) * TILE_SIZE;
+        int bottom = Math.min(size, top + TILE_SIZE);
+        int right = Math.min(size, left + TILE_SIZE);
+        int width = right - left;
+        boolean[] visited = new boolean[(bottom - top) * width];
+        int[] stack = new int[visited.length];
+        int[] neighbours = new int[8];
+        for (int i = top; i < bottom; i++) {
+            for (int j = left; j < right; j++) {
+                if (visited[(i - top) * width + j - left]) continue;
+                int root = i * size + j;
+                int key = key(root);
+                visited[(i - top) * width + j - left] = true;
+                int count = 0;
+                stack[count++] = root;
+                while (count > 0) {
+                    int dot = stack[--count];
+                    parent.set(dot, root);
+                    int n = neighbours(dot, neighbours);
+                    for (int k = 0; k < n; k++) {
+                        int row = neighbours[k] / size, column = neighbours[k] % size;
+                        if (row < top || row >= bottom || column < left || column >= right) continue;
+                        int local = (row - top) * width + column - left;
+                        if (!visited[local] && key(neighbours[k]) == key) {
+                            visited[local] = true;
+                            stack[count++] = neighbours[k];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Joins the components of the border of a tile to the components of
+     * their neighbours in other tiles
+     */
+    private void stitchTile(int tile) {
+        int top = (tile / tilesPerSide) * TILE_SIZE;
+        int left = (tile % tilesPerSide) * TILE_SIZE;
+        int bottom = Math.min(size, top + TILE_SIZE) - 1;
+        int right = Math.min(size, left + TILE_SIZE) - 1;
+        int[] neighbours = new int[8];
+        for (int i = top; i <= bottom; i++) {
+            // the whole first and last rows, the first and last columns otherwise
+            int step = i == top || i == bottom ? 1 : Math.max(1, right - left);
+            for (int j = left; j <= right; j += step) {
+                int dot = i * size + j;
+                int key = key(dot);
+                int n = neighbours(dot, neighbours);
+                for (int k = 0; k < n; k++) {
+                    int row = neighbours[k] / size, column = neighbours[k] % size;
+                    boolean inside = row >= top && row <= bottom && column >= left && column <= right;
+                    if (!inside && key(neighbours[k]) == key) union(dot, neighbours[k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the roots of a tile
+     */
+    private int countRoots(int tile) {
+        int count = 0;
+        int top = (tile / tilesPerSide) * TILE_SIZE;
+        int left = (tile % tilesPerSide) * TILE_SIZE;
+        for (int i = top; i < Math.min(size, top + TILE_SIZE); i++) {
+            for (int j = left; j < Math.min(size, left + TILE_SIZE); j++) {
+                if (parent.get(i * size + j) == i * size + j) count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Numbers the roots of a tile from the given number
+     */
+    private void numberRoots(int tile, int first) {
+        int top = (tile / tilesPerSide) * TILE_SIZE;
+        int left = (tile % tilesPerSide) * TILE_SIZE;
+        for (int i = top; i < Math.min(size, top + TILE_SIZE); i++) {
+            for (int j = left; j < Math.min(size, left + TILE_SIZE); j++) {
+                if (parent.get(i * size + j) == i * size + j) label[i * size + j] = first++;
+            }
+        }
+    }
+
+    /**
+     * Labels the dots of a tile with the number of their root
+     */
+    private void labelDots(int tile) {
+        int top = (tile / tilesPerSide) * TILE_SIZE;
+        int left = (tile % tilesPerSide) * TILE_SIZE;
+        for (int i = top; i < Math.min(size, top + TILE_SIZE); i++) {
+            for (int j = left; j < Math.min(size, left + TILE_SIZE); j++) {
+                int root = find(i * size + j);
+                if (root != i * size + j) label[i * size + j] = label[root];
+            }
+        }
+    }
+
+    /**
+     * Returns the root of the tree of a dot, halving the path to it
+     */
+    private int find(int dot) {
+        while (true) {
+            int p = parent.get(dot);
+            if (p == dot) return dot;
+            int grandparent = parent.get(p);
+            if (grandparent != p) parent.compareAndSet(dot, p, grandparent);
+            dot = grandparent;
+        }
+    }
+
+    /**
+     * Joins the trees of two dots, linking the larger root to the smaller one
+     */
+    private void union(int a, int b) {
+        while (true) {
+            a = find(a);
+            b = find(b);
+            if (a == b) return;
+            if (a < b) {
+                int swap = a;
+                a = b;
+                b = swap;
+            }
+            if (parent.compareAndSet(a, a, b)) return;
+        }
+    }
+
+    /**
+     * Returns the color of the dot at the packed index, or NUMBER_OF_COLORS
+     * if it is captured
+     */
+    private int key(int dot) {
+        return captured.get(dot) ? GameModel.NUMBER_OF_COLORS : colors[dot];
+    }
+
+    /**
+     * Stores in the array out the packed indices of the neighbours of the dot
+     * at the packed index, according to the settings of the game
+     *
+     * @return the number of neighbours
+     */
+    private int neighbours(int dot, int[] out) {
+        return GameModel.neighbours(dot / size, dot % size, size, plane, orthogonal, out);
+    }
+}
@@ -58,6 +58,13 @@ public class DotButton extends JButton {
 
     private static final ImageIcon[][] icons = new ImageIcon[NUMBER_OF_SIZES][GameModel.NUMBER_OF_COLORS];
 
+    /**
+     * The background of a cell the previewed move would capture
+     */
+    public static final Color HIGHLIGHT_COLOR = new Color(0xFFE9A8);
+
+    private boolean highlighted;
+
 
     /**
      * Constructor used for initializing a cell of a specified color.
@@ -106,17 +113,32 @@ public class DotButton extends JButton {
     }
 
     /**
-     * Changes the cell color of this cell. The image is updated accordingly.
+     * Changes the cell color of this cell. The image is updated accordingly,
+     * which repaints the cell. Does nothing if the color does not change.
      * 
      * @param color
      *            the color to set
      */
 
     public void setColor(int color) {
+        if (this.color == color) return;
     	this.color = color;
     	setIcon(getImageIcon());
     }
 
+    /**
+     * Highlights this cell, or not, when the result of a move is previewed.
+     * Does nothing if the highlight does not change.
+     *
+     * @param highlighted
+     *            true to highlight the cell
+     */
+    public void setHighlighted(boolean highlighted) {
+        if (this.highlighted == highlighted) return;
+        this.highlighted = highlighted;
+        setBackground(highlighted ? HIGHLIGHT_COLOR : Color.WHITE);
+    }
+
     /**
      * Getter for color
      *
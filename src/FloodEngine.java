@@ -0,0 +1,263 @@
+/**
+ * The class <b>FloodEngine</b> plays the game on a <b>GameModel</b> without any
+ * user interface: it selects the initial dot, applies colors, detects the end of
+ * the game and keeps the history of moves for undo and redo. It loads no AWT or
+ * Swing class, so that games can be played on headless machines, for instance to
+ * simulate a large number of games. The controller delegates the logic of the game
+ * to it.
+ *
+ * Captures, and the gain of each color, are computed incrementally by a
+ * <b>FrontierFlood</b>. Each flood is measured by <b>Metrics</b>.
+ */
+public class FloodEngine {
+
+    /**
+     * The model of the game
+     */
+    private GameModel model;
+
+    /**
+     * The frontier of the captured region, used to flood incrementally
+     */
+    private FrontierFlood frontier;
+
+    /**
+     * The moves played since the last reset, with the undone branches
+     */
+    private MoveTree history;
+
+    /**
+     * Are the moves recorded in the history ?
+     */
+    private boolean historyEnabled;
+
+    /**
+     * Constructor used for playing on a model. The captured region of the model
+     * is first extended to the dots of the selected color it touches.
+     *
+     * @param model
+     *            the model of the game
+     */
+    public FloodEngine(GameModel model) {
+        this.model = model;
+        frontier = new FrontierFlood(model);
+        frontier.apply(model.getCurrentSelectedColor());
+        history = new MoveTree();
+        historyEnabled = true;
+    }
+
+    /**
+     * Constructor used by <b>copy</b>
+     */
+    private FloodEngine(FloodEngine other) {
+        model = other.model.clone();
+        frontier = other.frontier.copy(model);
+        history = new MoveTree();
+        historyEnabled = other.historyEnabled;
+    }
+
+    /**
+     * Returns a copy of this engine, with a copy of its model and an empty
+     * history. The copy can be played independently, and passed to <b>restore</b>
+     * to come back to the current state.
+     *
+     * @return a copy of this engine
+     */
+    public FloodEngine copy() {
+        return new FloodEngine(this);
+    }
+
+    /**
+     * Restores the state saved by <b>copy</b>. The snapshot itself is not
+     * modified, and can be restored again. The history is cleared.
+     *
+     * @param snapshot
+     *            a copy of an engine
+     */
+    public void restore(FloodEngine snapshot) {
+        model = snapshot.model.clone();
+        frontier = snapshot.frontier.copy(model);
+        history.clear();
+    }
+
+    /**
+     * Enables or disables the recording of moves in the history. Simulations
+     * that never undo can disable it.
+     *
+     * @param enabled
+     *            true to record the moves
+     */
+    public void setHistoryEnabled(boolean enabled) {
+        historyEnabled = enabled;
+        if (!enabled) history.clear();
+    }
+
+    /**
+     * Getter method for the model of the game. It changes when a snapshot
+     * is restored.
+     *
+     * @return the model
+     */
+    public GameModel getModel() {
+        return model;
+    }
+
+    /**
+     * Starts a new game on a new board of the same size
+     */
+    public void reset() {
+        model.reset();
+        model.setInitialDot(true);
+        history.clear();
+        frontier.reset(model);
+    }
+
+    /**
+     * Selects the initial dot, which captures it with the dots of its color
+     * it is connected to. Does nothing if the initial dot is already selected.
+     *
+     * @param row
+     *            the row of the dot
+     * @param column
+     *            the column of the dot
+     * @return the number of dots captured
+     */
+    public int start(int row, int column) {
+        if (!model.getInitialDot()) return 0;
+        Move move = new Move(model);
+        long start = System.nanoTime();
+        Metrics.GameEvent event = Metrics.start(Metrics.FLOOD);
+        model.setInitialDot(false);
+        int captured = frontier.start(model, row, column);
+        Metrics.finish(Metrics.FLOOD, event, start, model, frontier.getLastVisited(), captured + 1);
+        if (historyEnabled) {
+            int[] flooded = frontier.getLastCaptured();
+            int[] dots = new int[flooded.length + 1];
+            dots[0] = row * model.getSize() + column;
+            System.arraycopy(flooded, 0, dots, 1, flooded.length);
+            move.finish(model, dots);
+            history.add(move);
+        }
+        return captured + 1;
+    }
+
+    /**
+     * <b>apply</b> selects a new color, captures the dots of that color
+     * connected to the captured region and counts one step. Does nothing if the
+     * initial dot is not selected yet, or if the color is the selected one.
+     *
+     * @param color
+     *            the newly selected color
+     * @return the number of dots captured
+     */
+    public int apply(int color) {
+        if (model.getInitialDot() || color == model.getCurrentSelectedColor()) return 0;
+        Move move = historyEnabled ? new Move(model) : null;
+        long start = System.nanoTime();
+        Metrics.GameEvent event = Metrics.start(Metrics.FLOOD);
+        model.setCurrentSelectedColor(color);
+        int captured = frontier.apply(color);
+        model.step();
+        Metrics.finish(Metrics.FLOOD, event, start, model, frontier.getLastVisited(), captured);
+        if (historyEnabled) {
+            move.finish(model, frontier.getLastCaptured());
+            history.add(move);
+        }
+        return captured;
+    }
+
+    /**
+     * returns true if all the dots are captured
+     *
+     * @return true if the game is finished, false otherwise
+     */
+    public boolean isFinished() {
+        return model.isFinished();
+    }
+
+    /**
+     * Returns the number of dots visited by the last flood, of <b>start</b>
+     * or <b>apply</b>
+     *
+     * @return the number of dots visited
+     */
+    public int getLastVisited() {
+        return frontier.getLastVisited();
+    }
+
+    /**
+     * Returns the number of dots of the given color next to the captured region
+     *
+     * @param color
+     *            the color
+     * @return the number of frontier dots of that color
+     */
+    public int getFrontierSize(int color) {
+        return frontier.getFrontierSize(color);
+    }
+
+    /**
+     * Returns the number of dots that selecting the given color would capture.
+     * From the first call on, the gains are kept up to date by each move,
+     * without trial floods.
+     *
+     * @param color
+     *            the color
+     * @return the number of dots captured by that color, 0 for the selected
+     *         color
+     */
+    public int getGain(int color) {
+        return frontier.getGain(color);
+    }
+
+    /**
+     * Undoes the last move, including the selection of the initial dot
+     *
+     * @return true if a move was undone
+     */
+    public boolean undo() {
+        return history.undo(model, frontier) != null;
+    }
+
+    /**
+     * Redoes the last undone move
+     *
+     * @return true if a move was redone
+     */
+    public boolean redo() {
+        return history.redo(model, frontier) != null;
+    }
+
+    /**
+     * Brings the game to its state after the given number of moves on the
+     * current line of play
+     *
+     * @param moves
+     *            the number of moves, the selection of the initial dot included
+     * @return true if the line of play has that many moves
+     */
+    public boolean goToMove(int moves) {
+        MoveTree.Node node = history.getNode(moves);
+        if (node == null) return false;
+        history.goTo(node, model, frontier);
+        return true;
+    }
+
+    /**
+     * returns true if there is a move to undo
+     *
+     * @return true if there is a move to undo
+     */
+    public boolean canUndo() {
+        return history.canUndo();
+    }
+
+    /**
+     * returns true if there is a move to redo
+     *
+     * @return true if there is a move to redo
+     */
+    public boolean canRedo() {
+        return history.canRedo();
+    }
+}
@@ -1,3 +1,4 @@
+import java.util.Arrays;
 
 
 /**
@@ -11,13 +12,45 @@ public class FloodIt {
    /**
      * <b>main</b> of the application. Creates the instance of  GameController 
      * and starts the game. If a game size (>10) is passed as parameter, it is 
-     * used as the board size. Otherwise, a default value is passed
+     * used as the board size. Otherwise, a default value is passed.
+     * If the first parameter is ``batch'', games are simulated without user
+     * interface instead, see <b>BatchSimulator</b>. If it is ``stress'', a
+     * game is played on a large tiled board, see <b>TiledFlood</b>. If it is
+     * ``server'', games are hosted for clients over TCP, see <b>GameServer</b>,
+     * if it is ``load'', games are played against a server, see
+     * <b>LoadGenerator</b>, if it is ``tournament'', strategies are
+     * compared on the same boards, see <b>Tournament</b>, and if it is
+     * ``verify'', random games are checked, see <b>FloodVerifier</b>
      * 
      * @param args
      *            command line parameters
      */
      public static void main(String[] args) {
         StudentInfo.display();
+        if (args.length > 0 && args[0].equals("batch")) {
+            BatchSimulator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("stress")) {
+            TiledFlood.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("server")) {
+            GameServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("load")) {
+            LoadGenerator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("tournament")) {
+            Tournament.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("verify")) {
+            FloodVerifier.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         int size = 10;
         //int size = 17;
         //int size = 22;
@@ -0,0 +1,135 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.swing.SwingUtilities;
+
+/**
+ * The class <b>FloodPreview</b> computes the dots each color would capture, to
+ * preview the result of a move when the mouse hovers a dot. The floods are computed
+ * speculatively on a background thread as soon as the state of the game changes,
+ * the hovered color first, so that hovering a dot never floods on the Event
+ * Dispatch Thread, and moving the mouse over dots of the same color does not
+ * flood again.
+ *
+ * <b>update</b> only clones the model, which copies its colors and captured dots
+ * without visiting them. The <b>BitboardFlood</b> snapshot of the clone is taken on
+ * the background thread, and the flood of each color is played on a copy of it. The results are cached by color, on the
+ * Event Dispatch Thread, until the next <b>update</b>: the results of the floods
+ * of an older state are dropped.
+ */
+public class FloodPreview {
+
+    /**
+     * Receives the previews, on the Event Dispatch Thread
+     */
+    public interface Listener {
+
+        /**
+         * Called with the dots the hovered color would capture
+         *
+         * @param dots
+         *            the dots, the dot (i,j) being bit i*size+j, or null if
+         *            there is nothing to show
+         */
+        public abstract void previewReady(long[] dots);
+    }
+
+    private Listener listener;
+    private ExecutorService executor;
+
+    /**
+     * The floods in progress, and the number of the last state: results of
+     * older states are stale
+     */
+    private Future<?> speculation;
+    private volatile long generation;
+
+    /**
+     * The dots captured by each color in the last state, null until computed,
+     * and the color hovered, or -1. Used on the Event Dispatch Thread only.
+     */
+    private long[][] cache = new long[GameModel.NUMBER_OF_COLORS][];
+    private int hovered = -1;
+
+    /**
+     * Constructor used for initializing the preview
+     *
+     * @param listener
+     *            the listener receiving the previews
+     */
+    public FloodPreview(Listener listener) {
+        this.listener = listener;
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "FloodIt preview");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Drops the previews of the previous state, and starts computing the ones
+     * of the current state of the model. Must be called on the Event Dispatch
+     * Thread each time the state changes, the model being read before
+     * returning. The preview shown is hidden until the hovered color is
+     * computed again.
+     *
+     * @param model
+     *            the model of the game
+     */
+    public void update(GameModel model) {
+        generation++;
+        if (speculation != null) {
+            speculation.cancel(true);
+            speculation = null;
+        }
+        cache = new long[GameModel.NUMBER_OF_COLORS][];
+        listener.previewReady(null);
+        if (model.getInitialDot() || model.isFinished()) return;
+        GameModel state = model.clone();
+        long request = generation;
+        int first = Math.max(hovered, 0);
+        speculation = executor.submit(() -> speculate(state, first, request));
+    }
+
+    /**
+     * Shows the preview of the given color, as soon as it is computed. Does
+     * nothing if that color is already hovered.
+     *
+     * @param color
+     *            the color hovered, or -1 to hide the preview
+     */
+    public void hover(int color) {
+        if (color == hovered) return;
+        hovered = color;
+        listener.previewReady(color < 0 ? null : cache[color]);
+    }
+
+    /**
+     * Takes a snapshot of the state, and floods a copy of it with each color,
+     * from the given one
+     */
+    private void speculate(GameModel state, int first, long request) {
+        BitboardFlood start = new BitboardFlood(state);
+        long[] before = start.getCaptured();
+        for (int k = 0; k < GameModel.NUMBER_OF_COLORS; k++) {
+            if (generation != request) return;
+            int color = (first + k) % GameModel.NUMBER_OF_COLORS;
+            if (color == start.getCurrentSelectedColor()) continue;
+            BitboardFlood trial = start.copy();
+            trial.apply(color);
+            // the copy is dropped, so its bitboard is reused for the result
+            long[] dots = trial.getCaptured();
+            for (int w = 0; w < dots.length; w++) dots[w] ^= before[w];
+            SwingUtilities.invokeLater(() -> publish(request, color, dots));
+        }
+    }
+
+    /**
+     * Caches the dots captured by a color, and shows them if it is hovered
+     */
+    private void publish(long request, int color, long[] dots) {
+        if (request != generation) return;
+        cache[color] = dots;
+        if (color == hovered) listener.previewReady(dots);
+    }
+}
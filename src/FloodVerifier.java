@@ -0,0 +1,316 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.lang.reflect.InvocationTargetException;
+import javax.swing.SwingUtilities;
+
+/**
+ * The class <b>FloodVerifier</b> checks the incremental engine of the game against
+ * independent computations, on random games. Each game is played by a
+ * <b>FloodEngine</b> on a board of random size and settings, with a random mix of
+ * moves, undos, redos, jumps in the history, restored copies and changes of
+ * settings. After each action:
+ * - the captured dots must match their count in the model;
+ * - a move must capture the dots a <b>BitboardFlood</b> snapshot of the previous
+ *   state captures with the same color;
+ * - undoing, redoing or going to a move must bring back the state recorded when
+ *   that move was first reached;
+ * - the gain of each color must be the number of dots a <b>BitboardFlood</b>
+ *   snapshot captures with that color.
+ * The previews of a <b>FloodPreview</b> are then checked on some of the states:
+ * they must be the dots the engine captures with the hovered color.
+ *
+ * The first mismatches are printed, and the process exits with status 1 if there
+ * is any.
+ */
+public class FloodVerifier {
+
+    /**
+     * The number of mismatches printed
+     */
+    public static final int MAX_REPORTED = 10;
+
+    private Random random;
+    private long checks;
+    private long mismatches;
+
+    /**
+     * The captured dots, selected color, steps and number of captured dots of
+     * a model, compared as a whole
+     */
+    private static class State {
+
+        private BitSet captured;
+        private int color;
+        private int steps;
+        private int numberCaptured;
+
+        private State(GameModel model) {
+            captured = (BitSet) model.getCapturedSet().clone();
+            color = model.getCurrentSelectedColor();
+            steps = model.getNumberOfSteps();
+            numberCaptured = model.getNumberCaptured();
+        }
+
+        public boolean equals(Object other) {
+            if (!(other instanceof State)) return false;
+            State state = (State) other;
+            return captured.equals(state.captured) && color == state.color
+                    && steps == state.steps && numberCaptured == state.numberCaptured;
+        }
+
+        public int hashCode() {
+            return captured.hashCode();
+        }
+
+        public String toString() {
+            return captured.cardinality() + " dots captured, color " + color + ", "
+                    + steps + " steps, numberCaptured " + numberCaptured;
+        }
+    }
+
+    /**
+     * Constructor used for initializing a verifier
+     *
+     * @param seed
+     *            the seed of the random games
+     */
+    public FloodVerifier(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Getter method for the number of checks made
+     *
+     * @return the number of checks
+     */
+    public long getChecks() {
+        return checks;
+    }
+
+    /**
+     * Getter method for the number of checks that failed
+     *
+     * @return the number of mismatches
+     */
+    public long getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * Plays and checks a random game
+     *
+     * @param game
+     *            the number of the game, used in the reports
+     * @param actions
+     *            the maximum number of actions played
+     * @return some states of the game, to check the previews on
+     */
+    public List<FloodEngine> play(int game, int actions) {
+        // some boards are larger than a tile of the component labeling
+        int size = random.nextInt(20) == 0 ? ComponentLabeling.TILE_SIZE + 1 + random.nextInt(64)
+                : 1 + random.nextInt(40);
+        GameModel model = new GameModel(size, random.nextLong());
+        model.setPlaneStatus(random.nextBoolean());
+        model.setOrthogonalStatus(random.nextBoolean());
+        FloodEngine engine = new FloodEngine(model);
+        List<FloodEngine> samples = new ArrayList<FloodEngine>();
+
+        // the state at each depth of the current line of play
+        List<State> line = new ArrayList<State>();
+        int depth = 0;
+        line.add(new State(model));
+        for (int action = 0; action < actions && !engine.isFinished(); action++) {
+            String name = "game " + game + ", action " + action;
+            model = engine.getModel();
+            if (model.getInitialDot()) {
+                int row = random.nextInt(size), column = random.nextInt(size);
+                BitboardFlood expected = new BitboardFlood(model);
+                expected.captureInitialDot(row, column);
+                expected.apply(expected.getCurrentSelectedColor());
+                engine.start(row, column);
+                check(name + ", initial dot", captured(expected), engine.getModel().getCapturedSet());
+                depth = record(line, depth, engine.getModel());
+            } else {
+                int choice = random.nextInt(20);
+                if (choice == 0) {
+                    if (engine.undo()) {
+                        depth--;
+                        reached(name + ", undo", line, depth, engine.getModel());
+                    }
+                } else if (choice == 1) {
+                    if (engine.redo()) {
+                        depth++;
+                        reached(name + ", redo", line, depth, engine.getModel());
+                    }
+                } else if (choice == 2) {
+                    int moves = random.nextInt(depth + 2);
+                    if (engine.goToMove(moves)) {
+                        depth = moves;
+                        reached(name + ", go to move " + moves, line, depth, engine.getModel());
+                    }
+                } else if (choice == 3) {
+                    model.setPlaneStatus(random.nextBoolean());
+                    model.setOrthogonalStatus(random.nextBoolean());
+                } else if (choice == 4) {
+                    // the history is cleared
+                    engine.restore(engine.copy());
+                    line.clear();
+                    depth = 0;
+                    line.add(new State(engine.getModel()));
+                } else {
+                    int color = random.nextInt(GameModel.NUMBER_OF_COLORS);
+                    if (color == model.getCurrentSelectedColor()) continue;
+                    BitboardFlood expected = new BitboardFlood(model);
+                    expected.apply(color);
+                    engine.apply(color);
+                    check(name + ", color " + color, captured(expected), engine.getModel().getCapturedSet());
+                    depth = record(line, depth, engine.getModel());
+                }
+            }
+            model = engine.getModel();
+            check(name + ", number captured", model.getInitialDot() ? 0 : model.getNumberCaptured(),
+                    model.getCapturedSet().cardinality());
+            if (!model.getInitialDot()) {
+                BitboardFlood snapshot = new BitboardFlood(model);
+                for (int color = 0; color < GameModel.NUMBER_OF_COLORS; color++) {
+                    int expected = color == model.getCurrentSelectedColor() ? 0 : snapshot.gain(color);
+                    check(name + ", gain of color " + color, expected, engine.getGain(color));
+                }
+                if (!engine.isFinished() && random.nextInt(8) == 0) samples.add(engine.copy());
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Checks the previews of the given states, for each color
+     *
+     * @param samples
+     *            the states
+     * @throws InterruptedException
+     *             if the verifier is interrupted
+     */
+    public void checkPreviews(List<FloodEngine> samples) throws InterruptedException {
+        long[][] shown = new long[1][];
+        FloodPreview[] preview = new FloodPreview[1];
+        invokeAndWait(() -> preview[0] = new FloodPreview(dots -> shown[0] = dots));
+        for (int k = 0; k < samples.size(); k++) {
+            FloodEngine engine = samples.get(k);
+            GameModel model = engine.getModel();
+            invokeAndWait(() -> preview[0].update(model));
+            for (int color = 0; color < GameModel.NUMBER_OF_COLORS; color++) {
+                if (color == model.getCurrentSelectedColor()) continue;
+                int hovered = color;
+                invokeAndWait(() -> preview[0].hover(hovered));
+                long deadline = System.currentTimeMillis() + 10000;
+                long[] dots = null;
+                while (dots == null && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(1);
+                    long[][] now = new long[1][];
+                    invokeAndWait(() -> now[0] = shown[0]);
+                    dots = now[0];
+                }
+                invokeAndWait(() -> preview[0].hover(-1));
+
+                FloodEngine trial = engine.copy();
+                trial.apply(color);
+                BitSet expected = (BitSet) trial.getModel().getCapturedSet().clone();
+                expected.andNot(model.getCapturedSet());
+                check("preview " + k + ", color " + color, expected,
+                        dots == null ? null : BitSet.valueOf(dots));
+            }
+        }
+    }
+
+    /**
+     * Records the state reached by a new move, after the current depth
+     *
+     * @return the new depth
+     */
+    private static int record(List<State> line, int depth, GameModel model) {
+        while (line.size() > depth + 1) line.remove(line.size() - 1);
+        while (line.size() < depth + 1) line.add(null);
+        line.add(new State(model));
+        return depth + 1;
+    }
+
+    /**
+     * Checks the state reached in the history against the one recorded at
+     * that depth, or records it if it is not known: a move reusing a branch
+     * leads to states played before the line was recorded
+     */
+    private void reached(String name, List<State> line, int depth, GameModel model) {
+        while (line.size() <= depth) line.add(null);
+        if (line.get(depth) == null) {
+            line.set(depth, new State(model));
+        } else {
+            check(name, line.get(depth), new State(model));
+        }
+    }
+
+    /**
+     * Returns the captured dots of a bitboard snapshot
+     */
+    private static BitSet captured(BitboardFlood flood) {
+        return BitSet.valueOf(flood.getCaptured());
+    }
+
+    /**
+     * Counts a check, and reports it if it failed
+     */
+    private void check(String name, Object expected, Object actual) {
+        checks++;
+        if (expected == null ? actual == null : expected.equals(actual)) return;
+        if (mismatches++ < MAX_REPORTED) {
+            System.out.println("Mismatch, " + name + ": expected " + expected + ", got " + actual);
+        }
+    }
+
+    /**
+     * Runs a task on the Event Dispatch Thread and waits for it
+     */
+    private static void invokeAndWait(Runnable task) throws InterruptedException {
+        try {
+            SwingUtilities.invokeAndWait(task);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("The check failed", e.getCause());
+        }
+    }
+
+    /**
+     * Runs the verifier. The parameters are the number of games (500 by
+     * default) and the maximum number of actions per game (300 by default).
+     * The seed can be set with the system property floodit.seed.
+     *
+     * @param args
+     *            command line parameters
+     */
+    public static void main(String[] args) {
+        int games = 500;
+        int actions = 300;
+        try {
+            if (args.length > 0) games = Integer.parseInt(args[0]);
+            if (args.length > 1) actions = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            System.out.println("Usage: verify [games [actions]]");
+            return;
+        }
+        long seed = Long.getLong("floodit.seed", 0L);
+        FloodVerifier verifier = new FloodVerifier(seed);
+        long start = System.nanoTime();
+        try {
+            for (int game = 0; game < games; game++) {
+                List<FloodEngine> samples = verifier.play(game, actions);
+                verifier.checkPreviews(samples);
+            }
+        } catch (InterruptedException e) {
+            System.out.println("Interrupted");
+            System.exit(1);
+        }
+        System.out.printf("%d games, seed %d: %d checks, %d mismatches in %.2f s%n", games, seed,
+                verifier.getChecks(), verifier.getMismatches(), (System.nanoTime() - start) / 1e9);
+        System.exit(verifier.getMismatches() == 0 ? 0 : 1);
+    }
+}
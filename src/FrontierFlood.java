@@ -0,0 +1,541 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The class <b>FrontierFlood</b> computes the dots captured when a new color is
+ * selected, incrementally. It keeps, between moves, the frontier of the captured
+ * region, that is the dots that are not captured but are next to a captured dot,
+ * bucketed by their color. Selecting a color then only visits the dots of the
+ * matching bucket and the dots they lead to, instead of the whole board.
+ *
+ * The frontier is computed with a full scan of the board by <b>reset</b>, which
+ * must be called whenever the model is replaced or captured outside of this class.
+ * The selection of the initial dot, by <b>start</b>, does not scan the board: only
+ * the component of the initial dot and its neighbours are visited. On boards larger
+ * than a tile of <b>ComponentLabeling</b>, when several threads are available, the
+ * components are labeled in parallel first, and the component of the initial dot is
+ * found by its label.
+ * A move allocates nothing once the buckets and the stack of the dots to visit
+ * have grown to the size the game needs.
+ * It is rebuilt automatically if the plane/torus or orthogonal/diagonal settings
+ * of the model change.
+ *
+ * It also keeps the gain of each color: the number of dots selecting it would
+ * capture. The uncaptured dots are labeled by their connected components of one
+ * color, with a <b>ComponentLabeling</b>, when the frontier is rebuilt; a color
+ * captures exactly the components of that color that have a dot on the frontier.
+ * The number of frontier dots of each component is counted as dots enter and
+ * leave the frontier, and the size of a component is added to, or removed from,
+ * the gain of its color when it starts or stops touching the captured region.
+ * The dots released by an undone move are labeled again, as new components.
+ * The gains are kept from the selection of the initial dot on boards where it
+ * labels the components, or else from the first time they are asked for.
+ */
+public class FrontierFlood {
+
+    /**
+     * Reference to the model of the game
+     */
+    private GameModel model;
+
+    /**
+     * The size of the board the frontier was built for
+     */
+    private int size;
+
+    /**
+     * The settings of the model when the frontier was built
+     */
+    private boolean plane;
+    private boolean orthogonal;
+
+    /**
+     * For each color, the dots of the frontier of that color, as packed
+     * indices row*size+column. Only the first bucketSize[color] are used.
+     */
+    private int[][] bucket;
+    private int[] bucketSize;
+
+    /**
+     * The position of each dot in its bucket, or -1 if it is not on the frontier
+     */
+    private int[] slot;
+
+    /**
+     * The component of each uncaptured dot, at its packed index, or null if
+     * the gains are not kept. Captured dots keep the component they had, or a
+     * meaningless one.
+     */
+    private int[] label;
+
+    /**
+     * The number of components labeled, and the number of dots of each and
+     * of its dots on the frontier
+     */
+    private int componentCount;
+    private int[] componentSize;
+    private int[] touching;
+
+    /**
+     * For each color, the number of dots selecting it would capture
+     */
+    private int[] gain = new int[GameModel.NUMBER_OF_COLORS];
+
+    /**
+     * The dots captured by the last call to apply, as packed indices
+     */
+    private int[] changes = new int[16];
+    private int changeCount;
+
+    /**
+     * The number of dots visited by the last call to apply
+     */
+    private int visitedCount;
+
+    /**
+     * The captured dots whose neighbours are not visited yet, reused by
+     * each call to apply
+     */
+    private IntStack stack = new IntStack();
+
+    /**
+     * Scratch arrays receiving the neighbours of a dot
+     */
+    private int[] neighbours = new int[8];
+    private int[] around = new int[8];
+
+    /**
+     * Constructor used for initializing the frontier of a model.
+     *
+     * @param model
+     *            the model of the game
+     */
+    public FrontierFlood(GameModel model) {
+        bucket = new int[GameModel.NUMBER_OF_COLORS][16];
+        bucketSize = new int[GameModel.NUMBER_OF_COLORS];
+        reset(model);
+    }
+
+    /**
+     * Constructor used by <b>copy</b>
+     */
+    private FrontierFlood(FrontierFlood other, GameModel model) {
+        this.model = model;
+        size = other.size;
+        plane = other.plane;
+        orthogonal = other.orthogonal;
+        bucket = new int[GameModel.NUMBER_OF_COLORS][];
+        for (int color = 0; color < GameModel.NUMBER_OF_COLORS; color++) {
+            bucket[color] = other.bucket[color].clone();
+        }
+        bucketSize = other.bucketSize.clone();
+        slot = other.slot.clone();
+        if (other.label != null) {
+            label = other.label.clone();
+            componentCount = other.componentCount;
+            componentSize = other.componentSize.clone();
+            touching = other.touching.clone();
+            gain = other.gain.clone();
+        }
+    }
+
+    /**
+     * Returns a copy of this frontier for a copy of its model
+     *
+     * @param model
+     *            the copy of the model
+     * @return a copy of this frontier
+     */
+    public FrontierFlood copy(GameModel model) {
+        return new FrontierFlood(this, model);
+    }
+
+    /**
+     * Recomputes the frontier of the captured region of the given model
+     * with a full scan of the board.
+     *
+     * @param model
+     *            the model of the game
+     */
+    public void reset(GameModel model) {
+        this.model = model;
+        plane = model.getPlaneStatus();
+        orthogonal = model.getOrthogonalStatus();
+        if (slot == null || size != model.getSize()) {
+            size = model.getSize();
+            slot = new int[size * size];
+        }
+        Arrays.fill(slot, -1);
+        Arrays.fill(bucketSize, 0);
+        boolean gains = label != null;
+        label = null;
+
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (!model.isCaptured(i, j) && nextToCaptured(i, j)) {
+                    add(i * size + j, model.getColor(i, j));
+                }
+            }
+        }
+        if (gains) labelComponents();
+    }
+
+    /**
+     * <b>start</b> selects the initial dot of the given model, none of whose
+     * dots is captured: it captures the initial dot and the dots of its
+     * component, and builds the frontier from the neighbours of that
+     * component. On boards larger than ComponentLabeling.TILE_SIZE, if the
+     * common pool has several threads, the components are found by a parallel
+     * <b>ComponentLabeling</b> of the board, which is kept for the gains.
+     * Otherwise the labeling would run on one thread, and the dots of the
+     * color of the initial dot are followed instead.
+     *
+     * @param model
+     *            the model of the game
+     * @param row
+     *            the row of the initial dot
+     * @param column
+     *            the column of the initial dot
+     * @return the number of dots captured, the initial dot excluded
+     */
+    public int start(GameModel model, int row, int column) {
+        this.model = model;
+        plane = model.getPlaneStatus();
+        orthogonal = model.getOrthogonalStatus();
+        if (slot == null || size != model.getSize()) {
+            size = model.getSize();
+            slot = new int[size * size];
+        }
+        Arrays.fill(slot, -1);
+        Arrays.fill(bucketSize, 0);
+        // labeled before the initial dot is captured, which would split its component
+        if (size > ComponentLabeling.TILE_SIZE && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            useLabels(new ComponentLabeling(model));
+        } else {
+            label = null;
+        }
+        model.captureInitialDot(row, column);
+
+        int initial = row * size + column;
+        int component = label == null ? -1 : label[initial];
+        int color = model.getCurrentSelectedColor();
+        stack.clear();
+        changeCount = 0;
+        visitedCount = 0;
+        stack.pushInt(initial);
+        while (!stack.isEmpty()) {
+            int dot = stack.popInt();
+            int count = neighbours(dot / size, dot % size, neighbours);
+            visitedCount += count;
+            for (int k = 0; k < count; k++) {
+                int n = neighbours[k];
+                int i = n / size, j = n % size;
+                if (model.isCaptured(i, j)) continue;
+                if (label == null ? model.getColor(i, j) == color : label[n] == component) {
+                    model.capture(i, j);
+                    stack.pushInt(n);
+                    record(n);
+                } else if (slot[n] < 0) {
+                    add(n, model.getColor(i, j));
+                }
+            }
+        }
+        return changeCount;
+    }
+
+    /**
+     * Keeps the components of a labeling for the gains, none of them
+     * touching the captured region yet
+     */
+    private void useLabels(ComponentLabeling labeling) {
+        label = labeling.getLabels().clone();
+        componentCount = labeling.getComponentCount();
+        componentSize = new int[Math.max(16, componentCount)];
+        for (int k = 0; k < componentCount; k++) componentSize[k] = labeling.getComponentSize(k);
+        touching = new int[componentSize.length];
+        Arrays.fill(gain, 0);
+    }
+
+    /**
+     * Labels the components of the uncaptured dots, and computes the gains
+     * from the frontier
+     */
+    private void labelComponents() {
+        useLabels(new ComponentLabeling(model));
+        for (int color = 0; color < GameModel.NUMBER_OF_COLORS; color++) {
+            for (int k = 0; k < bucketSize[color]; k++) {
+                if (touching[label[bucket[color][k]]]++ == 0) {
+                    gain[color] += componentSize[label[bucket[color][k]]];
+                }
+            }
+        }
+    }
+
+    /**
+     * <b>apply</b> captures all the dots of the given color that are connected
+     * to the captured region, and updates the frontier accordingly.
+     *
+     * @param color
+     *            the selected color
+     * @return the number of dots captured
+     */
+    public int apply(int color) {
+        if (plane != model.getPlaneStatus() || orthogonal != model.getOrthogonalStatus()) {
+            reset(model);
+        }
+
+        stack.clear();
+        changeCount = 0;
+        visitedCount = bucketSize[color];
+        int[] dots = bucket[color];
+        for (int k = 0; k < bucketSize[color]; k++) {
+            int i = dots[k] / size;
+            int j = dots[k] % size;
+            slot[dots[k]] = -1;
+            if (label != null) touching[label[dots[k]]] = 0;
+            if (model.isCaptured(i, j)) continue;
+            model.capture(i, j);
+            stack.pushInt(dots[k]);
+            record(dots[k]);
+        }
+        bucketSize[color] = 0;
+        gain[color] = 0;
+
+        while (!stack.isEmpty()) {
+            int dot = stack.popInt();
+            int count = neighbours(dot / size, dot % size, neighbours);
+            visitedCount += count;
+            for (int k = 0; k < count; k++) {
+                int i = neighbours[k] / size;
+                int j = neighbours[k] % size;
+                if (model.isCaptured(i, j)) continue;
+                int c = model.getColor(i, j);
+                if (c == color) {
+                    model.capture(i, j);
+                    stack.pushInt(neighbours[k]);
+                    record(neighbours[k]);
+                } else if (slot[neighbours[k]] < 0) {
+                    add(neighbours[k], c);
+                }
+            }
+        }
+        return changeCount;
+    }
+
+    /**
+     * Returns the dots captured by the last call to <b>apply</b>
+     *
+     * @return the captured dots, as packed indices row*size+column
+     */
+    public int[] getLastCaptured() {
+        return Arrays.copyOf(changes, changeCount);
+    }
+
+    /**
+     * Returns the number of dots visited by the last call to <b>apply</b>: the
+     * dots of the bucket of its color, and the neighbours of the dots captured
+     *
+     * @return the number of dots visited
+     */
+    public int getLastVisited() {
+        return visitedCount;
+    }
+
+    /**
+     * Updates the frontier after the given dots were released in the model,
+     * when a move is undone. Only the released dots and their neighbours are
+     * visited.
+     *
+     * @param dots
+     *            the released dots, as packed indices row*size+column
+     */
+    public void release(int[] dots) {
+        if (plane != model.getPlaneStatus() || orthogonal != model.getOrthogonalStatus()
+                || label != null && (componentCount + dots.length > 2 * size * size || !relabel(dots))) {
+            reset(model);
+            return;
+        }
+        for (int dot : dots) {
+            int i = dot / size, j = dot % size;
+            if (slot[dot] < 0 && nextToCaptured(i, j)) add(dot, model.getColor(i, j));
+            int count = neighbours(i, j, around);
+            for (int k = 0; k < count; k++) {
+                int n = around[k];
+                if (slot[n] >= 0 && !nextToCaptured(n / size, n % size)) remove(n);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of dots of the given color on the frontier
+     *
+     * @param color
+     *            the color
+     * @return the number of frontier dots of that color
+     */
+    public int getFrontierSize(int color) {
+        return bucketSize[color];
+    }
+
+    /**
+     * Returns the number of dots that selecting the given color would capture.
+     * The first call labels the board; the gains are then kept by each move,
+     * and the board is not visited.
+     *
+     * @param color
+     *            the color
+     * @return the number of dots captured by that color, 0 for the selected
+     *         color
+     */
+    public int getGain(int color) {
+        if (plane != model.getPlaneStatus() || orthogonal != model.getOrthogonalStatus()) {
+            reset(model);
+        }
+        if (label == null) labelComponents();
+        // after a change of settings, dots of the selected color may touch the
+        // captured region, but selecting that color again does nothing
+        if (color == model.getCurrentSelectedColor()) return 0;
+        return gain[color];
+    }
+
+    /**
+     * Labels the released dots as new components, joining the dots of one
+     * color connected to each other. A released dot is not connected to an
+     * uncaptured dot of its color, which its move would have captured, unless
+     * the move was played with other settings.
+     *
+     * @return false if a released dot is connected to another component
+     */
+    private boolean relabel(int[] dots) {
+        for (int dot : dots) label[dot] = -1;
+        for (int dot : dots) {
+            if (label[dot] >= 0) continue;
+            if (componentCount == componentSize.length) {
+                componentSize = Arrays.copyOf(componentSize, 2 * componentCount);
+                touching = Arrays.copyOf(touching, 2 * componentCount);
+            }
+            int component = componentCount++;
+            int color = model.getColor(dot / size, dot % size);
+            componentSize[component] = 0;
+            touching[component] = 0;
+            label[dot] = component;
+            stack.clear();
+            stack.pushInt(dot);
+            while (!stack.isEmpty()) {
+                int d = stack.popInt();
+                componentSize[component]++;
+                int count = neighbours(d / size, d % size, around);
+                for (int k = 0; k < count; k++) {
+                    int n = around[k];
+                    if (model.getColor(n / size, n % size) != color) continue;
+                    if (label[n] < 0) {
+                        label[n] = component;
+                        stack.pushInt(n);
+                    } else if (label[n] != component && !model.isCaptured(n / size, n % size)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that the captured dots are whole components, which is not the
+     * case when the move was played with other settings
+     */
+    private boolean wholeComponents(int[] dots) {
+        byte[] colors = model.getColorArray();
+        for (int dot : dots) {
+            int count = neighbours(dot / size, dot % size, around);
+            for (int k = 0; k < count; k++) {
+                int n = around[k];
+                if (colors[n] == colors[dot] && !model.isCaptured(n / size, n % size)) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the dot at the packed index to the bucket of its color
+     */
+    private void add(int index, int color) {
+        if (bucketSize[color] == bucket[color].length) {
+            bucket[color] = Arrays.copyOf(bucket[color], 2 * bucket[color].length);
+        }
+        slot[index] = bucketSize[color];
+        bucket[color][bucketSize[color]++] = index;
+        if (label != null && touching[label[index]]++ == 0) gain[color] += componentSize[label[index]];
+    }
+
+    /**
+     * Updates the frontier after the given dots were captured in the model
+     * outside of <b>apply</b>, when a move is redone. Only the captured dots
+     * and their neighbours are visited.
+     *
+     * @param dots
+     *            the captured dots, as packed indices row*size+column
+     */
+    public void capture(int[] dots) {
+        if (plane != model.getPlaneStatus() || orthogonal != model.getOrthogonalStatus()
+                || label != null && !wholeComponents(dots)) {
+            reset(model);
+            return;
+        }
+        for (int dot : dots) {
+            if (slot[dot] >= 0) remove(dot);
+        }
+        for (int dot : dots) {
+            int count = neighbours(dot / size, dot % size, around);
+            for (int k = 0; k < count; k++) {
+                int n = around[k];
+                if (slot[n] < 0 && !model.isCaptured(n / size, n % size)) {
+                    add(n, model.getColor(n / size, n % size));
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the dot at the packed index from the bucket it is in. The dot
+     * may already be captured, so its color is found from the buckets.
+     */
+    private void remove(int index) {
+        int color = 0;
+        while (slot[index] >= bucketSize[color] || bucket[color][slot[index]] != index) color++;
+        int last = bucket[color][--bucketSize[color]];
+        bucket[color][slot[index]] = last;
+        slot[last] = slot[index];
+        slot[index] = -1;
+        if (label != null && --touching[label[index]] == 0) gain[color] -= componentSize[label[index]];
+    }
+
+    /**
+     * Appends the dot at the packed index to the dots captured by apply
+     */
+    private void record(int index) {
+        if (changeCount == changes.length) changes = Arrays.copyOf(changes, 2 * changes.length);
+        changes[changeCount++] = index;
+    }
+
+    /**
+     * Checks if one of the neighbours of the dot (i,j) is captured
+     */
+    private boolean nextToCaptured(int i, int j) {
+        int count = neighbours(i, j, neighbours);
+        for (int k = 0; k < count; k++) {
+            if (model.isCaptured(neighbours[k] / size, neighbours[k] % size)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stores in the array out the packed indices of the neighbours of
+     * the dot (i,j), according to the settings of the game.
+     *
+     * @return the number of neighbours
+     */
+    private int neighbours(int i, int j, int[] out) {
+        return GameModel.neighbours(i, j, size, plane, orthogonal, out);
+    }
+}
@@ -1,7 +1,12 @@
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
 import javax.swing.*;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 
 
@@ -10,58 +15,112 @@ import java.io.*;
  * <b>selectColor</b> which is called by the view when the player selects the next
  * color. It then computes the next step of the game, and  updates model and view.
  *
+ * Each action of the player is recorded in a <b>GameJournal</b>, flushed every
+ * second and when the application exits, so a game interrupted without the Quit
+ * button is rebuilt from its journal on the next start.
+ *
+ * The moves are measured by <b>Metrics</b>, whose counters are printed when
+ * Control+M is pressed.
+ *
+ * The view shows next to each color the number of dots selecting it would
+ * capture, which the engine keeps from move to move. When the mouse hovers a
+ * dot, the dots selecting its color would capture are highlighted; they are
+ * computed in advance by a <b>FloodPreview</b>.
+ *
  * @author Guy-Vincent Jourdan, University of Ottawa
  */
 
-public class GameController implements ActionListener {
+public class GameController implements ActionListener, HintEngine.Listener, FloodPreview.Listener {
 
     /**
      * Reference to the view of the board
      */
     private GameView gameView;
     /**
-     * Reference to the model of the game
+     * The engine playing the game, which holds the model of the game
      */
-    private GameModel gameModel;
-    
-    private boolean actionFlag;
-    
-    Stack<GameModel> modelStack; 
+    private FloodEngine engine;
+    /**
+     * The engine searching hints in the background
+     */
+    private HintEngine hintEngine;
+    /**
+     * The previews of the moves, and the dot hovered (-1 if none)
+     */
+    private FloodPreview preview;
+    private int hoveredRow = -1;
+    private int hoveredColumn = -1;
+    /**
+     * The journal of the game, null if it cannot be written
+     */
+    private GameJournal journal;
     
     
     /**
      * Constructor used for initializing the controller. It creates the game's view 
-     * and the game's model instances
+     * and the game's model instances. The first board is generated from the seed
+     * given by the system property floodit.seed if it is set, so that a board
+     * can be played again from the seed shown by the view.
      * 
      * @param size
      *            the size of the board on which the game will be played
      */
     public GameController(int size) {
-        try {
-            InputStream file = new FileInputStream("savedGame.ser");
-            ObjectInput input = new ObjectInputStream (file);
-            gameModel = (GameModel) input.readObject();
-            (new File("savedGame.ser")).delete();
-        } catch (Exception e) {
-            gameModel = new GameModel(size);
-            gameModel.setInitialDot (true);
+        Path journalFile = Paths.get(GameJournal.FILE);
+        if (Files.exists(journalFile)) {
+            try {
+                journal = GameJournal.recover(journalFile);
+                engine = journal.getEngine();
+            } catch (IOException e) {
+                System.err.println("Could not recover the game journal: " + e.getMessage());
+            }
         }
+        if (engine == null) {
+            GameModel gameModel = SaveFormat.load();
+            boolean seeded = gameModel == null;
+            if (seeded) {
+                Long seed = Long.getLong("floodit.seed");
+                gameModel = seed == null ? new GameModel(size) : new GameModel(size, seed);
+                gameModel.setInitialDot (true);
+            }
+            engine = new FloodEngine(gameModel);
+            newJournal(seeded);
+        }
+        GameModel gameModel = engine.getModel();
+        new Timer(1000, e -> { if (journal != null) journal.flush(); }).start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> { if (journal != null) journal.flush(); }));
+        hintEngine = new HintEngine(this, Long.getLong("floodit.hint", HintEngine.DEFAULT_TIME_BUDGET));
+        preview = new FloodPreview(this);
         gameView = new GameView(gameModel, this);
-        modelStack = new GenericLinkedStack<GameModel>();
-        flood();
-        modelStack.push(gameModel.deepClone());
-        gameView.update(gameModel);
+        gameView.getRootPane().registerKeyboardAction(e -> Metrics.dump(System.out),
+                KeyStroke.getKeyStroke(KeyEvent.VK_M, InputEvent.CTRL_DOWN_MASK),
+                JComponent.WHEN_IN_FOCUSED_WINDOW);
+        updateView();
     }
 
     /**
      * resets the game
      */
     public void reset(){
-        gameModel.reset();
-        modelStack = new GenericLinkedStack<GameModel>();
-        gameModel.setInitialDot (true);
-        flood();
-        gameView.update(gameModel);
+        engine.reset();
+        newJournal(true);
+        updateView();
+    }
+
+    /**
+     * starts a new journal for the current state of the game
+     * @param seeded
+     *            true if the model is the board of its seed, with the initial
+     *            dot not selected yet
+     */
+    private void newJournal(boolean seeded) {
+        if (journal != null) journal.close();
+        try {
+            journal = GameJournal.create(Paths.get(GameJournal.FILE), engine.getModel(), seeded);
+        } catch (IOException e) {
+            System.err.println("The game journal is disabled: " + e.getMessage());
+            journal = null;
+        }
     }
 
     /**
@@ -72,22 +131,25 @@ public class GameController implements ActionListener {
      */
 
     public void actionPerformed(ActionEvent e) {
+        GameModel gameModel = engine.getModel();
         if (e.getSource() instanceof DotButton) {
-            actionFlag = true;
-            if (gameModel.getInitialDot()) {
-                gameModel.setInitialDot(false);
-                gameView.update(gameModel);
-                int initialx = ((DotButton)(e.getSource())).getRow();
-                int initialy = ((DotButton)(e.getSource())).getColumn();
-                gameModel.captureInitialDot(initialx, initialy);
+            DotButton clicked = (DotButton)(e.getSource());
+            if (clicked.getRow() < 0) {
+                // a color of the palette
+                if (!gameModel.getInitialDot()) selectColor(clicked.getColor());
             } else {
-                selectColor(((DotButton)(e.getSource())).getColor());
+                dotClicked(clicked.getRow(), clicked.getColumn());
             }
-            modelStack.push(gameModel.deepClone());
         } else if (e.getSource() instanceof JButton) {
             JButton clicked = (JButton)(e.getSource());
             if (clicked.getText().equals("Quit")) {
-                gameModel.serializeModel();
+                try {
+                    gameModel.serializeModel();
+                    if (journal != null) journal.delete();
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(gameView, "The game could not be saved: "
+                            + ex.getMessage(), "Quit", JOptionPane.ERROR_MESSAGE);
+                }
                 System.exit(0);
             } else if (clicked.getText().equals("Reset")){
                 reset();
@@ -96,18 +158,26 @@ public class GameController implements ActionListener {
             } else if (clicked.getText().equals("OK")){
                 gameView.showSettings(false);
             } else if (clicked.getText().equals("Undo")){ 
-                if (actionFlag && !modelStack.isEmpty()) 
-                    gameModel = modelStack.pop(); // remove current model
-                if (!modelStack.isEmpty()) gameModel = modelStack.pop();
-                flood();
-                gameView.update(gameModel);
-                actionFlag = false;
+                if (engine.undo() && journal != null) journal.undo();
+                updateView();
             } else if (clicked.getText().equals("Redo")){
-                
+                if (engine.redo() && journal != null) journal.redo();
+                updateView();
+            } else if (clicked.getText().equals("Zoom in")){
+                gameView.zoom(1);
+            } else if (clicked.getText().equals("Zoom out")){
+                gameView.zoom(-1);
+            } else if (clicked.getText().equals("Hint")){
+                if (!gameModel.getInitialDot() && !engine.isFinished()) {
+                    gameView.searchingHint();
+                    hintEngine.request(gameModel);
+                }
             }
         } 
         else if (e.getSource() instanceof JRadioButton) {
             JRadioButton clicked = (JRadioButton)(e.getSource());
+            hintEngine.cancel();
+            gameView.clearHint();
             if (clicked.getText().equals("Plane")) {
                 gameModel.setPlaneStatus(true);
             } else if (clicked.getText().equals("Torus")){
@@ -117,9 +187,150 @@ public class GameController implements ActionListener {
             } else if (clicked.getText().equals("Diagonal")) {
                 gameModel.setOrthogonalStatus(false);
             }
+            if (journal != null) {
+                journal.settings(gameModel.getPlaneStatus(), gameModel.getOrthogonalStatus());
+            }
+            updateGains();
+            preview.update(gameModel);
+        }
+    }
+
+    /**
+     * <b>dotClicked</b> is the method called when the user clicks a dot, on
+     * a DotButton or on a BoardCanvas. The first click selects the initial
+     * dot, the next ones select the color of the dot clicked.
+     * @param row
+     *            the row of the dot
+     * @param column
+     *            the column of the dot
+     */
+    public void dotClicked(int row, int column) {
+        GameModel gameModel = engine.getModel();
+        if (gameModel.getInitialDot()) {
+            engine.start(row, column);
+            if (journal != null) journal.start(row, column);
+            updateView();
+        } else {
+            selectColor(gameModel.getColor(row, column));
         }
     }
 
+    /**
+     * <b>goToMove</b> brings the game to its state after the given number of
+     * moves on the current line of play, undoing or redoing only the moves in
+     * between
+     * @param moves
+     *            the number of moves, the selection of the initial dot included
+     */
+    public void goToMove(int moves) {
+        if (engine.goToMove(moves)) {
+            if (journal != null) journal.goToMove(moves);
+            updateView();
+        }
+    }
+
+    /**
+     * Callback used by the hint engine, on the Event Dispatch Thread, with the
+     * best hint found so far
+     *
+     * @param color
+     *            the suggested color
+     * @param moves
+     *            the number of moves of the game found, 0 if none was finished
+     */
+    public void hintFound(int color, int moves) {
+        gameView.showHint(color, moves);
+    }
+
+    /**
+     * <b>dotHovered</b> is the method called when the mouse moves over a dot,
+     * on a DotButton or on a BoardCanvas. The dots selecting its color would
+     * capture are highlighted once the game is started.
+     * @param row
+     *            the row of the dot
+     * @param column
+     *            the column of the dot
+     */
+    public void dotHovered(int row, int column) {
+        hoveredRow = row;
+        hoveredColumn = column;
+        previewHovered();
+    }
+
+    /**
+     * <b>hoverEnded</b> is the method called when the mouse leaves the dots
+     */
+    public void hoverEnded() {
+        hoveredRow = -1;
+        hoveredColumn = -1;
+        previewHovered();
+    }
+
+    /**
+     * Callback used by the preview, on the Event Dispatch Thread, with the
+     * dots the hovered color would capture
+     *
+     * @param dots
+     *            the dots, or null if there is nothing to show
+     */
+    public void previewReady(long[] dots) {
+        gameView.showPreview(dots);
+    }
+
+    /**
+     * previews the color of the dot hovered, if any
+     */
+    private void previewHovered() {
+        GameModel gameModel = engine.getModel();
+        if (hoveredRow < 0 || gameModel.getInitialDot()) {
+            preview.hover(-1);
+        } else {
+            preview.hover(gameModel.getColor(hoveredRow, hoveredColumn));
+        }
+    }
+
+    /**
+     * Returns the number of dots that selecting the given color would capture
+     *
+     * @param color
+     *            the color
+     * @return the number of dots captured by that color, 0 for the selected
+     *         color or before the initial dot is selected
+     */
+    public int getGain(int color) {
+        if (engine.getModel().getInitialDot()) return 0;
+        return engine.getGain(color);
+    }
+
+    /**
+     * updates the view from the model and the history of moves. The hint
+     * being searched or shown is for the previous state, so it is cancelled.
+     */
+    private void updateView() {
+        hintEngine.cancel();
+        gameView.clearHint();
+        gameView.update(engine.getModel());
+        gameView.updateHistory(engine.canUndo(), engine.canRedo());
+        updateGains();
+        preview.update(engine.getModel());
+        previewHovered();
+    }
+
+    /**
+     * shows the gain of each color, once the initial dot is selected
+     */
+    private void updateGains() {
+        if (engine.getModel().getInitialDot()) {
+            gameView.showGains(null);
+            return;
+        }
+        int[] gains = new int[GameModel.NUMBER_OF_COLORS];
+        for (int color = 0; color < GameModel.NUMBER_OF_COLORS; color++) {
+            gains[color] = getGain(color);
+        }
+        gameView.showGains(gains);
+    }
+
     /**
      * <b>selectColor</b> is the method called when the user selects a new color.
      * If that color is not the currently selected one, then it applies the logic
@@ -130,13 +341,16 @@ public class GameController implements ActionListener {
      *            the newly selected color
      */
     public void selectColor(int color){
+        GameModel gameModel = engine.getModel();
         if(color != gameModel.getCurrentSelectedColor()) {
-            gameModel.setCurrentSelectedColor(color);
-            flood();
-            gameModel.step();
-            gameView.update(gameModel);
+            long start = System.nanoTime();
+            Metrics.GameEvent event = Metrics.start(Metrics.MOVE);
+            int captured = engine.apply(color);
+            if (journal != null) journal.color(color);
+            updateView();
+            Metrics.finish(Metrics.MOVE, event, start, gameModel, engine.getLastVisited(), captured);
 
-            if(gameModel.isFinished()) {
+            if(engine.isFinished()) {
                 Object[] options = {"Play Again", "Quit"};
                 int n = JOptionPane.showOptionDialog(gameView,
                         "Congratulations, you won in " + gameModel.getNumberOfSteps() 
@@ -147,110 +361,16 @@ public class GameController implements ActionListener {
                         null,
                         options,
                         options[0]);
-                if(n == 0) reset();
-                else System.exit(0);
+                if(n == 0) {
+                    reset();
+                } else {
+                    // the game is won, there is nothing to recover on the next start
+                    if (journal != null) journal.delete();
+                    journal = null;
+                    System.exit(0);
+                }
             }            
         }        
     }
-
-   /**
-     * <b>flood</b> is the method that computes which new dots should be ``captured'' 
-     * when a new color has been selected. The Model is updated accordingly
-     */
-    private void flood() {
-        Stack<DotInfo> stack = new GenericLinkedStack<DotInfo>();
-        for(int i = 0; i < gameModel.getSize(); i++) {
-           for(int j = 0; j < gameModel.getSize(); j++) {
-                if(gameModel.isCaptured(i,j)) {
-                    stack.push(gameModel.get(i,j));
-                }
-           }
-        }
-        
-        if ( gameModel.getPlaneStatus() ) floodPlaneOrthogonal (stack);
-        else floodTurus (stack);
-    }
-    
-    private void floodPlaneOrthogonal (Stack<DotInfo> stack) {
-        DotInfo dotInfo;
-        int x, xLeft = -1, xRight = -1, y, yUp = -1, yDown = -1; 
-        while(!stack.isEmpty()){
-            dotInfo = stack.pop();
-            x = dotInfo.getX(); 
-            y = dotInfo.getY();
-            if (x > 0) xLeft = x - 1;
-            if (x < gameModel.getSize()-1) xRight = x + 1;
-            if (y > 0) yUp = y - 1;
-            if (y < gameModel.getSize()-1) yDown = y + 1;
-            if(x > 0) captureIT(stack, xLeft, y);
-            if(x < gameModel.getSize()-1) captureIT(stack, xRight, y);
-            if(y > 0) captureIT(stack, x, yUp);
-            if(y < gameModel.getSize()-1) captureIT(stack, x, yDown);
-            if (!gameModel.getOrthogonalStatus()) {
-                if ((x > 0) && (y > 0)) 
-                    captureIT(stack, xLeft, yUp);
-                if ((x > 0) && y < ((gameModel.getSize() - 1))) 
-                    captureIT(stack, xLeft, yUp);
-                if ((x < (gameModel.getSize() - 1)) && ( y > 0)) 
-                    captureIT(stack, xRight, yUp);
-                if ((x < (gameModel.getSize() - 1)) && (y < (gameModel.getSize() - 1))) 
-                    captureIT(stack, xRight, yDown);
-            }
-        }
-    }
-    
-    private void floodTurus (Stack<DotInfo> stack) {
-        DotInfo dotInfo;
-        int x, xLeft, xRight, y, yUp, yDown;
-        while(!stack.isEmpty()){
-            dotInfo = stack.pop();
-            x = dotInfo.getX(); 
-            y = dotInfo.getY();
-            if (x > 0) xLeft = x - 1;
-            else xLeft = gameModel.getSize() - 1;
-            if (x < gameModel.getSize()-1) xRight = x + 1;
-            else xRight = 0;
-            if (y > 0) yUp = y - 1;
-            else yUp = gameModel.getSize() - 1;
-            if (y < gameModel.getSize()-1) yDown = y + 1;
-            else yDown = 0;
-            captureIT(stack, xLeft, y);
-            captureIT(stack, xRight, y);
-            captureIT(stack, x, yUp);
-            captureIT(stack, x, yDown);
-            if (!gameModel.getOrthogonalStatus()) {
-                captureIT(stack, xLeft, yUp);
-                captureIT(stack, xLeft, yDown);
-                captureIT(stack, xRight, yUp);
-                captureIT(stack, xRight, yDown);
-            }
-            
-        }
-    }
-    
-    private void captureIT(Stack<DotInfo> stack, int x, int y) {
-        if(shouldBeCaptured (x, y)) {
-            gameModel.capture(x, y);
-            stack.push(gameModel.get(x, y));
-        }
-    }
-
-    /**
-     * <b>shouldBeCaptured</b> is a helper method that decides if the dot
-     * located at position (i,j), which is next to a captured dot, should
-     * itself be captured
-     * @param i
-     *            row of the dot
-     * @param j
-     *            column of the dot
-     */
-    private boolean shouldBeCaptured(int i, int j) {
-        if(!gameModel.isCaptured(i, j) &&
-           (gameModel.getColor(i,j) == gameModel.getCurrentSelectedColor())) {
-            return true;
-        } else {
-            return false;
-        }
-    }
     
-}
\ No newline at end of file
+}
@@ -0,0 +1,350 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The class <b>GameJournal</b> is an append-only journal of the moves of a game,
+ * from which the game is rebuilt after a crash. It begins with a header:
+ * - the magic number ``FLDJ'' and the version of the format (short)
+ * - the size of the board (int), its seed (long) and the plane/torus and
+ *   orthogonal/diagonal flags (byte)
+ * - 1 followed by the length (int) and the bytes of a <b>SaveFormat</b> snapshot
+ *   if the game did not start on the board of the seed, 0 otherwise
+ * and is followed by one record per action of the player, an operation code
+ * followed by its parameters: the initial dot (row and column, int), a color
+ * (byte), undo, redo, a move of the history (int) or new settings (byte).
+ *
+ * Records are buffered and appended in batches, when BATCH_SIZE records are
+ * pending or when <b>flush</b> is called. A record cut by a crash is ignored.
+ * If the journal cannot be written, the error is reported once and the journal
+ * is disabled, the game going on.
+ */
+public class GameJournal {
+
+    /**
+     * The file of the journal of the game in progress
+     */
+    public static final String FILE = "savedGame.journal";
+
+    /**
+     * The magic number and the current version of the format
+     */
+    public static final int MAGIC = 0x464C444A;
+    public static final short VERSION = 1;
+
+    /**
+     * The number of records appended at a time
+     */
+    public static final int BATCH_SIZE = 16;
+
+    private static final byte START = 1;
+    private static final byte COLOR = 2;
+    private static final byte UNDO = 3;
+    private static final byte REDO = 4;
+    private static final byte GO_TO = 5;
+    private static final byte SETTINGS = 6;
+
+    private static final int FLAG_PLANE = 1;
+    private static final int FLAG_ORTHOGONAL = 2;
+
+    private Path file;
+    private FileChannel channel;
+
+    /**
+     * The records not written yet
+     */
+    private ByteBuffer pending;
+    private int pendingRecords;
+
+    /**
+     * The engine rebuilt by <b>recover</b>, null otherwise
+     */
+    private FloodEngine engine;
+
+    /**
+     * Constructor used by <b>create</b> and <b>recover</b>
+     */
+    private GameJournal(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+        pending = ByteBuffer.allocate(BATCH_SIZE * 9);
+    }
+
+    /**
+     * Starts a new journal for a game, replacing the previous one
+     *
+     * @param file
+     *            the file of the journal
+     * @param model
+     *            the model of the game, in its current state
+     * @param seeded
+     *            true if the model is the board of its seed, with the initial
+     *            dot not selected yet, false to save a snapshot of it
+     * @return the journal
+     * @throws IOException
+     *             if the journal cannot be written
+     */
+    public static GameJournal create(Path file, GameModel model, boolean seeded) throws IOException {
+        ByteBuffer snapshot = seeded ? null : SaveFormat.encode(model);
+        ByteBuffer header = ByteBuffer.allocate(4 + 2 + 4 + 8 + 1 + 1
+                + (snapshot == null ? 0 : 4 + snapshot.remaining()));
+        header.putInt(MAGIC);
+        header.putShort(VERSION);
+        header.putInt(model.getSize());
+        header.putLong(model.getSeed());
+        header.put(flags(model.getPlaneStatus(), model.getOrthogonalStatus()));
+        if (snapshot == null) {
+            header.put((byte) 0);
+        } else {
+            header.put((byte) 1);
+            header.putInt(snapshot.remaining());
+            header.put(snapshot);
+        }
+        header.flip();
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            while (header.hasRemaining()) channel.write(header);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new GameJournal(file, channel);
+    }
+
+    /**
+     * Rebuilds the game of a journal by replaying its records through a
+     * <b>FloodEngine</b>, and reopens the journal to go on appending to it.
+     * A last record cut by a crash is dropped.
+     *
+     * @param file
+     *            the file of the journal
+     * @return the journal, whose engine is the rebuilt game
+     * @throws IOException
+     *             if the journal cannot be read, or its header is not valid
+     */
+    public static GameJournal recover(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        GameModel model;
+        try {
+            if (buffer.getInt() != MAGIC) throw new IOException("Not a game journal");
+            short version = buffer.getShort();
+            if (version > VERSION) {
+                throw new IOException("Unsupported version " + version + " of game journal");
+            }
+            int size = buffer.getInt();
+            long seed = buffer.getLong();
+            int flags = buffer.get();
+            if (size <= 0 || size > 46340) throw new IOException("Corrupted game journal");
+            if (buffer.get() == 0) {
+                model = new GameModel(size, seed);
+            } else {
+                int length = buffer.getInt();
+                ByteBuffer snapshot = buffer.slice();
+                snapshot.limit(length);
+                model = SaveFormat.decode(snapshot);
+                buffer.position(buffer.position() + length);
+            }
+            model.setPlaneStatus((flags & FLAG_PLANE) != 0);
+            model.setOrthogonalStatus((flags & FLAG_ORTHOGONAL) != 0);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Truncated game journal", e);
+        }
+
+        FloodEngine engine = new FloodEngine(model);
+        int valid = buffer.position();
+        try {
+            while (buffer.hasRemaining()) {
+                byte operation = buffer.get();
+                switch (operation) {
+                    case START:
+                        int row = buffer.getInt();
+                        int column = buffer.getInt();
+                        if (row < 0 || row >= model.getSize() || column < 0 || column >= model.getSize()) {
+                            throw new IOException("Corrupted game journal");
+                        }
+                        engine.start(row, column);
+                        break;
+                    case COLOR:
+                        int color = buffer.get();
+                        if (color < 0 || color >= GameModel.NUMBER_OF_COLORS) {
+                            throw new IOException("Corrupted game journal");
+                        }
+                        engine.apply(color);
+                        break;
+                    case UNDO:
+                        engine.undo();
+                        break;
+                    case REDO:
+                        engine.redo();
+                        break;
+                    case GO_TO:
+                        engine.goToMove(buffer.getInt());
+                        break;
+                    case SETTINGS:
+                        int settings = buffer.get();
+                        engine.getModel().setPlaneStatus((settings & FLAG_PLANE) != 0);
+                        engine.getModel().setOrthogonalStatus((settings & FLAG_ORTHOGONAL) != 0);
+                        break;
+                    default:
+                        throw new IOException("Corrupted game journal");
+                }
+                valid = buffer.position();
+            }
+        } catch (BufferUnderflowException e) {
+            // the last record was cut by a crash
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        channel.truncate(valid);
+        channel.position(valid);
+        GameJournal journal = new GameJournal(file, channel);
+        journal.engine = engine;
+        return journal;
+    }
+
+    /**
+     * Getter method for the engine rebuilt by <b>recover</b>
+     *
+     * @return the engine, or null if the journal was created
+     */
+    public FloodEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Records the selection of the initial dot
+     *
+     * @param row
+     *            the row of the dot
+     * @param column
+     *            the column of the dot
+     */
+    public synchronized void start(int row, int column) {
+        if (channel == null) return;
+        pending.put(START).putInt(row).putInt(column);
+        recorded();
+    }
+
+    /**
+     * Records the selection of a color
+     *
+     * @param color
+     *            the color
+     */
+    public synchronized void color(int color) {
+        if (channel == null) return;
+        pending.put(COLOR).put((byte) color);
+        recorded();
+    }
+
+    /**
+     * Records an undo
+     */
+    public synchronized void undo() {
+        if (channel == null) return;
+        pending.put(UNDO);
+        recorded();
+    }
+
+    /**
+     * Records a redo
+     */
+    public synchronized void redo() {
+        if (channel == null) return;
+        pending.put(REDO);
+        recorded();
+    }
+
+    /**
+     * Records a move to another state of the history
+     *
+     * @param moves
+     *            the number of moves of that state
+     */
+    public synchronized void goToMove(int moves) {
+        if (channel == null) return;
+        pending.put(GO_TO).putInt(moves);
+        recorded();
+    }
+
+    /**
+     * Records new settings
+     *
+     * @param plane
+     *            true for plane, false for torus
+     * @param orthogonal
+     *            true for orthogonal, false for diagonal
+     */
+    public synchronized void settings(boolean plane, boolean orthogonal) {
+        if (channel == null) return;
+        pending.put(SETTINGS).put(flags(plane, orthogonal));
+        recorded();
+    }
+
+    /**
+     * Appends the pending records to the file
+     */
+    public synchronized void flush() {
+        if (channel == null || pendingRecords == 0) return;
+        pending.flip();
+        try {
+            while (pending.hasRemaining()) channel.write(pending);
+        } catch (IOException e) {
+            failed(e);
+            return;
+        }
+        pending.clear();
+        pendingRecords = 0;
+    }
+
+    /**
+     * Flushes and closes the journal
+     */
+    public synchronized void close() {
+        flush();
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) { }
+        channel = null;
+    }
+
+    /**
+     * Closes and deletes the journal, once the game is saved otherwise
+     */
+    public synchronized void delete() {
+        close();
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) { }
+    }
+
+    /**
+     * Counts a record, and flushes the batch when it is full
+     */
+    private void recorded() {
+        pendingRecords++;
+        if (pendingRecords >= BATCH_SIZE) flush();
+    }
+
+    /**
+     * Reports a write error and disables the journal
+     */
+    private void failed(IOException e) {
+        System.err.println("The game journal is disabled: " + e.getMessage());
+        try {
+            channel.close();
+        } catch (IOException ignored) { }
+        channel = null;
+    }
+
+    private static byte flags(boolean plane, boolean orthogonal) {
+        return (byte) ((plane ? FLAG_PLANE : 0) | (orthogonal ? FLAG_ORTHOGONAL : 0));
+    }
+}
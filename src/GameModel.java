@@ -1,10 +1,14 @@
+import java.util.BitSet;
 import java.util.Random;
+import java.util.stream.IntStream;
 import java.io.*;
+import java.nio.file.Paths;
 
 /**
  * The class <b>GameModel</b> holds the model, the state of the systems. 
  * It stores the followiung information:
  * - the state of all the ``dots'' on the board (color, captured or not)
+ *   packed row-major in an array of colors and a set of captured bits
  * - the size of the board
  * - the number of steps since the last reset
  * - the current color of selection
@@ -18,6 +22,12 @@ import java.io.*;
  */
 public class GameModel implements Cloneable, Serializable  {
 
+    /**
+     * Kept equal to the value of the DotInfo[][] version of the class, so that
+     * games saved by that version can still be read
+     */
+    private static final long serialVersionUID = 3308355551977152711L;
+
     /**
      * predefined values to capture the color of a DotInfo
      */
@@ -40,9 +50,14 @@ public class GameModel implements Cloneable, Serializable  {
     private  int sizeOfGame;
  
     /**
-     * A 2 dimensional array of sizeOfGame*sizeOfGame recording the state of each dot
+     * The color of each dot, the dot (i,j) being at index i*sizeOfGame+j
+     */
+    private byte[] colors;
+
+    /**
+     * The captured dots, the dot (i,j) being at index i*sizeOfGame+j
      */
-    private DotInfo[][] model;
+    private BitSet captured;
 
    /**
      * The number of steps played since the last reset
@@ -55,9 +70,14 @@ public class GameModel implements Cloneable, Serializable  {
     private int numberCaptured;
 
    /**
-     * Random generator
+     * Random generator, used to draw the seed of each new board
      */
     private Random generator;
+
+   /**
+     * The seed the current board was generated from
+     */
+    private long seed;
     
     private boolean initialDot;
     private boolean plane;
@@ -78,25 +98,96 @@ public class GameModel implements Cloneable, Serializable  {
         reset();
     }
 
+    /**
+     * Constructor to initialize the model to the board of a given size
+     * generated from a given seed. The same seed and size always give the
+     * same board.
+     * 
+     * @param size
+     *            the size of the board
+     * @param seed
+     *            the seed of the board
+     */
+    public GameModel(int size, long seed) {
+        generator = new Random();
+        sizeOfGame = size;
+        setPlaneStatus (true);
+        setOrthogonalStatus(true);
+        setInitialDot(true);
+        reset(seed);
+    }
+
+    /**
+     * Constructor used by <b>SaveFormat</b> to restore a saved board. The
+     * other attributes are then set through the setters.
+     * 
+     * @param size
+     *            the size of the board
+     * @param seed
+     *            the seed of the board
+     * @param colors
+     *            the colors of the dots, packed row-major
+     * @param captured
+     *            the captured dots, packed row-major
+     */
+    GameModel(int size, long seed, byte[] colors, BitSet captured) {
+        generator = new Random();
+        sizeOfGame = size;
+        this.seed = seed;
+        this.colors = colors;
+        this.captured = captured;
+    }
+
 
     /**
-     * Resets the model to (re)start a game. The previous game (if there is one)
-     * is cleared up . 
+     * Resets the model to (re)start a game on a new random board. The previous
+     * game (if there is one) is cleared up . 
      */
     public void reset(){
-    	model = new DotInfo[sizeOfGame][sizeOfGame];
+        reset(generator.nextLong());
+    }
+
+    /**
+     * Resets the model to (re)start a game on the board generated from the
+     * given seed. The previous game (if there is one) is cleared up . 
+     * The board only depends on the seed and the size: it is generated by
+     * the tiles of a <b>BoardGenerator</b>, in parallel for large boards.
+     * 
+     * @param seed
+     *            the seed of the board
+     */
+    public void reset(long seed){
+        this.seed = seed;
+        if (colors == null || colors.length != sizeOfGame*sizeOfGame) {
+            colors = new byte[sizeOfGame*sizeOfGame];
+            captured = new BitSet(sizeOfGame*sizeOfGame);
+        } else {
+            captured.clear();
+        }
+
+        BoardGenerator board = new BoardGenerator(seed, sizeOfGame);
+        int tilesPerSide = board.getTilesPerSide();
+        IntStream range = IntStream.range(0, tilesPerSide * tilesPerSide);
+        if (tilesPerSide > 1) range = range.parallel();
+        range.forEach(t -> board.fillTile(t / tilesPerSide, t % tilesPerSide, colors,
+                (t / tilesPerSide) * BoardGenerator.TILE_SIZE * sizeOfGame
+                + (t % tilesPerSide) * BoardGenerator.TILE_SIZE, sizeOfGame));
 
-    	for(int i = 0; i < sizeOfGame; i++){
-            for(int j = 0; j < sizeOfGame; j++){
-                model[i][j] = new DotInfo(i,j,generator.nextInt(NUMBER_OF_COLORS));
-            }
-    	}
-    	
     	numberOfSteps = 0;
         numberCaptured = 1;
     }
 
 
+    /**
+     * Getter method for the seed the current board was generated from
+     * 
+     * @return the seed of the board
+     */   
+    public long getSeed(){
+        return seed;
+    }
+
+
     /**
      * Getter method for the size of the game
      * 
@@ -119,7 +210,7 @@ public class GameModel implements Cloneable, Serializable  {
         if(isCaptured(i, j)) {
             return currentSelectedColor;
         } else {
-    	   return model[i][j].getColor();
+    	   return colors[i*sizeOfGame + j];
         }
     }
     
@@ -132,8 +223,8 @@ public class GameModel implements Cloneable, Serializable  {
      */   
     public void captureInitialDot (int row, int column) {
         // initially, the top left DotInfo is captured        
-        currentSelectedColor = model[row][column].getColor();
-        model[row][column].setCaptured(true);
+        currentSelectedColor = colors[row*sizeOfGame + column];
+        captured.set(row*sizeOfGame + column);
     }
 
     /**
@@ -146,7 +237,7 @@ public class GameModel implements Cloneable, Serializable  {
      * @return the status of the dot at location (i,j)
      */   
     public boolean isCaptured(int i, int j){
-        return model[i][j].isCaptured();
+        return captured.get(i*sizeOfGame + j);
     }
 
     /**
@@ -158,11 +249,26 @@ public class GameModel implements Cloneable, Serializable  {
      *            the y coordinate of the dot
      */   
     public void capture(int i, int j){
-        model[i][j].setCaptured(true);
+        captured.set(i*sizeOfGame + j);
         numberCaptured++;
     }
 
 
+    /**
+     * Sets the status of the dot at coordinate (i,j) to not captured.
+     * Used to undo a move.
+     * 
+     * @param i
+     *            the x coordinate of the dot
+     * @param j
+     *            the y coordinate of the dot
+     */   
+    public void release(int i, int j){
+        captured.clear(i*sizeOfGame + j);
+        numberCaptured--;
+    }
+
+
     /**
      * Getter method for the current number of steps
      * 
@@ -197,18 +303,18 @@ public class GameModel implements Cloneable, Serializable  {
 
 
     /**
-     * Getter method for the model's dotInfo reference
-     * at location (i,j)
+     * Getter method for a DotInfo view of the dot at location (i,j).
+     * The view reads and writes through to the model.
      *
       * @param i
      *            the x coordinate of the dot
      * @param j
      *            the y coordinate of the dot
      *
-     * @return model[i][j]
+     * @return a view of the dot (i,j)
      */   
     public DotInfo get(int i, int j) {
-        return model[i][j];
+        return new DotView(i, j);
     }
     
     /**
@@ -252,6 +358,52 @@ public class GameModel implements Cloneable, Serializable  {
     public void setOrthogonalStatus (boolean dstatus) {
         orthogonal = dstatus;
     }
+
+    /**
+     * Stores in the array out the packed indices row*size+column of the
+     * neighbours of the dot (i,j) on a board of the given size and settings:
+     * on a torus, the neighbours wrap around the edges, and with diagonal
+     * moves the four diagonal dots are neighbours too. The array must hold
+     * 8 indices. Shared by all the floods of the game.
+     *
+     * @param i
+     *            the row of the dot
+     * @param j
+     *            the column of the dot
+     * @param size
+     *            the size of the board
+     * @param plane
+     *            true for plane, false for torus
+     * @param orthogonal
+     *            true for orthogonal, false for diagonal
+     * @param out
+     *            the array receiving the neighbours
+     * @return the number of neighbours
+     */
+    static int neighbours(int i, int j, int size, boolean plane, boolean orthogonal, int[] out) {
+        int count = 0;
+        int up = i - 1, down = i + 1, left = j - 1, right = j + 1;
+        if (!plane) {
+            if (up < 0) up = size - 1;
+            if (down == size) down = 0;
+            if (left < 0) left = size - 1;
+            if (right == size) right = 0;
+        }
+        boolean hasUp = up >= 0, hasDown = down < size;
+        boolean hasLeft = left >= 0, hasRight = right < size;
+
+        if (hasUp) out[count++] = up * size + j;
+        if (hasDown) out[count++] = down * size + j;
+        if (hasLeft) out[count++] = i * size + left;
+        if (hasRight) out[count++] = i * size + right;
+        if (!orthogonal) {
+            if (hasUp && hasLeft) out[count++] = up * size + left;
+            if (hasUp && hasRight) out[count++] = up * size + right;
+            if (hasDown && hasLeft) out[count++] = down * size + left;
+            if (hasDown && hasRight) out[count++] = down * size + right;
+        }
+        return count;
+    }
     
     public void setInitialDot (boolean flag) {
         initialDot = flag;
@@ -280,17 +432,15 @@ public class GameModel implements Cloneable, Serializable  {
     }
     
     /**
-     * The method <b>clone</b> returns a deep copy of the GameModel object
+     * The method <b>clone</b> returns a deep copy of the GameModel object.
+     * The copy shares the random generator of this model.
      * @return a deep copy of this GameModel object
      */
     public GameModel clone() {
         try {
             GameModel gmodel = (GameModel) super.clone();
-            gmodel.model = (DotInfo[][]) gmodel.model.clone();
-            for(int i = 0; i < sizeOfGame; i++)
-                for(int j = 0; j < sizeOfGame; j++) {
-                    gmodel.model[i][j] = this.model[i][j].clone();
-                }
+            gmodel.colors = colors.clone();
+            gmodel.captured = (BitSet) captured.clone();
             return gmodel;
         } catch (CloneNotSupportedException e) {
         return null;
@@ -298,47 +448,140 @@ public class GameModel implements Cloneable, Serializable  {
         
     }
     
-    
+    /**
+     * The method <b>deepClone</b> returns a deep copy of the GameModel object,
+     * with its own random generator.
+     * @return a deep copy of this GameModel object
+     */
     public GameModel deepClone() {
-        GameModel clonedModel = new GameModel (sizeOfGame);
-        for(int i = 0; i < sizeOfGame; i++) {
-                for(int j = 0; j < sizeOfGame; j++) {
-                    clonedModel.model[i][j].setColor(this.model[i][j].getColor());
-                    clonedModel.model[i][j].setCaptured(this.isCaptured (i, j));
-                }
-        }
-        clonedModel.setCurrentSelectedColor(this.getCurrentSelectedColor());
-        clonedModel.setNumberOfSteps (this.getNumberOfSteps());
-        clonedModel.setNumberCaptured (this.getNumberCaptured());
-        clonedModel.setInitialDot(this.getInitialDot());
-        clonedModel.setPlaneStatus(this.getPlaneStatus());
-        clonedModel.setOrthogonalStatus(this.getOrthogonalStatus());
+        long start = System.nanoTime();
+        Metrics.GameEvent event = Metrics.start(Metrics.CLONE);
+        GameModel clonedModel = clone();
+        clonedModel.generator = new Random();
+        Metrics.finish(Metrics.CLONE, event, start, this, colors.length, 0);
         return clonedModel;
     }
     
     
-    public void serializeModel() {
-        FileOutputStream fout = null;
-        ObjectOutputStream oos = null;
-        try {
-            fout = new FileOutputStream("savedGame.ser");
-            oos = new ObjectOutputStream(fout);
-            oos.writeObject(this);
-        } catch (Exception ex) { }
-        finally {
-            if (fout != null) {
-                try {
-                    fout.close();
-                } catch (IOException e) { }
+    /**
+     * The method <b>serializeModel</b> saves the game in the working directory,
+     * in the binary format of <b>SaveFormat</b>.
+     * @throws IOException
+     *             if the game cannot be saved
+     */
+    public void serializeModel() throws IOException {
+        long start = System.nanoTime();
+        Metrics.GameEvent event = Metrics.start(Metrics.SAVE);
+        SaveFormat.write(this, Paths.get(SaveFormat.FILE));
+        Metrics.finish(Metrics.SAVE, event, start, this, colors.length, 0);
+    }
+
+    /**
+     * Getter method for the colors of the dots, packed row-major, the
+     * captured ones included. Used by <b>SaveFormat</b>; must not be modified.
+     * @return the colors of the dots
+     */
+    byte[] getColorArray() {
+        return colors;
+    }
+
+    /**
+     * Getter method for the captured dots, packed row-major. Used by
+     * <b>SaveFormat</b>; must not be modified.
+     * @return the captured dots
+     */
+    BitSet getCapturedSet() {
+        return captured;
+    }
+    
+    
+    /**
+     * Reads a model saved by this version of the class, or by the version
+     * which stored the board as a DotInfo[][] in the field model. The board
+     * must have the size read, and its colors must be valid.
+     * @throws InvalidObjectException if the board does not match its size
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        currentSelectedColor = fields.get("currentSelectedColor", 0);
+        sizeOfGame = fields.get("sizeOfGame", 0);
+        numberOfSteps = fields.get("numberOfSteps", 0);
+        numberCaptured = fields.get("numberCaptured", 0);
+        generator = (Random) fields.get("generator", null);
+        seed = fields.get("seed", 0L);
+        initialDot = fields.get("initialDot", false);
+        plane = fields.get("plane", false);
+        orthogonal = fields.get("orthogonal", false);
+        if (sizeOfGame <= 0 || sizeOfGame > 46340) {
+            throw new InvalidObjectException("Invalid size " + sizeOfGame);
+        }
+        if (currentSelectedColor < 0 || currentSelectedColor >= NUMBER_OF_COLORS) {
+            throw new InvalidObjectException("Invalid color " + currentSelectedColor);
+        }
+
+        if (fields.getObjectStreamClass().getField("model") != null) {
+            DotInfo[][] model = (DotInfo[][]) fields.get("model", null);
+            if (model == null || model.length != sizeOfGame) {
+                throw new InvalidObjectException("The board does not have " + sizeOfGame + " rows");
             }
-            if (oos != null) {
-                try {
-                    oos.close();
-                } catch (IOException e) { }
+            colors = new byte[sizeOfGame*sizeOfGame];
+            captured = new BitSet(sizeOfGame*sizeOfGame);
+            for(int i = 0; i < sizeOfGame; i++) {
+                if (model[i] == null || model[i].length != sizeOfGame) {
+                    throw new InvalidObjectException("The row " + i + " does not have " + sizeOfGame + " dots");
+                }
+                for(int j = 0; j < sizeOfGame; j++) {
+                    if (model[i][j] == null) {
+                        throw new InvalidObjectException("No dot at " + i + " " + j);
+                    }
+                    colors[i*sizeOfGame + j] = (byte) model[i][j].getColor();
+                    if (model[i][j].isCaptured()) captured.set(i*sizeOfGame + j);
+                }
+            }
+        } else {
+            colors = (byte[]) fields.get("colors", null);
+            captured = (BitSet) fields.get("captured", null);
+            if (colors == null || colors.length != sizeOfGame*sizeOfGame) {
+                throw new InvalidObjectException("The board does not have " + sizeOfGame + " rows of "
+                        + sizeOfGame + " dots");
+            }
+            if (captured == null || captured.length() > colors.length) {
+                throw new InvalidObjectException("Invalid captured dots");
+            }
+        }
+        for (byte color : colors) {
+            if (color < 0 || color >= NUMBER_OF_COLORS) {
+                throw new InvalidObjectException("Invalid color " + color);
             }
         }
     }
-    
+
+    /**
+     * A <b>DotView</b> presents the dot (i,j) of the packed storage as a DotInfo
+     */
+    private class DotView extends DotInfo {
+
+        private DotView(int i, int j) {
+            super(i, j, colors[i*sizeOfGame + j]);
+        }
+
+        public int getColor() {
+            return colors[getX()*sizeOfGame + getY()];
+        }
+
+        public void setColor(int color) {
+            colors[getX()*sizeOfGame + getY()] = (byte) color;
+        }
+
+        public boolean isCaptured() {
+            return captured.get(getX()*sizeOfGame + getY());
+        }
+
+        public void setCaptured(boolean flag) {
+            captured.set(getX()*sizeOfGame + getY(), flag);
+        }
+    }
+
     
    /**
      * Builds a String representation of the model
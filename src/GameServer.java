@@ -0,0 +1,322 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The class <b>GameServer</b> hosts games without any user interface, for bots and
+ * tournaments, over a line-based TCP protocol on the loopback interface. Each
+ * connection is a session playing one game at a time on its own
+ * <b>FloodEngine</b>, and is served by its own virtual thread, so that thousands
+ * of games can be played at once in a single JVM. The sessions share no game
+ * state. They do share counters: the numbers of sessions and requests of the
+ * server, and the measures of <b>Metrics</b> taken by each move. These are
+ * updated without locks, the ones updated at each request being striped
+ * adders, so that sessions do not contend on them.
+ *
+ * A request is a line holding a command and its parameters, separated by spaces:
+ * - NEW size [seed]: starts a game on a new board, generated from the seed if
+ *   given, the initial dot not being selected yet
+ * - CLICK row column: selects the initial dot, or the color of the dot once the
+ *   initial dot is selected, like a click on the board
+ * - COLOR color: selects a color, from 0 to 5
+ * - UNDO and REDO: undoes or redoes a move
+ * - SETTINGS plane|torus orthogonal|diagonal: changes the settings of the game
+ * - STATE: describes the game
+ * - BOARD: describes the game, followed by one line per row of the board, holding
+ *   the colors of its dots, the captured ones having the selected color
+ * - QUIT: closes the session
+ * Each request is answered with one line: ``OK'' followed by the state of the
+ * game (size, seed, steps, selected color, number of captured dots, and whether
+ * the initial dot is selected and the game is finished, as name=value pairs), or
+ * ``ERROR'' followed by a message. QUIT is answered with ``BYE''. A request that
+ * fails unexpectedly is answered with ``ERROR'' too, and the game of the session
+ * is dropped.
+ */
+public class GameServer {
+
+    /**
+     * The default port of the server
+     */
+    public static final int DEFAULT_PORT = 7777;
+
+    /**
+     * The largest board a session can play on
+     */
+    public static final int MAX_SIZE = 1000;
+
+    private ServerSocket serverSocket;
+    private ExecutorService executor;
+    private Thread acceptor;
+
+    /**
+     * The sessions open, and the numbers of sessions and requests served
+     */
+    private AtomicInteger openSessions = new AtomicInteger();
+    private LongAdder sessions = new LongAdder();
+    private LongAdder requests = new LongAdder();
+
+    /**
+     * Constructor used for initializing a server listening on the loopback
+     * interface. It accepts connections once <b>start</b> is called.
+     *
+     * @param port
+     *            the port, or 0 for any free port
+     * @throws IOException
+     *             if the port cannot be opened
+     */
+    public GameServer(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 4096, InetAddress.getLoopbackAddress());
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Getter method for the port the server listens on
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Getter method for the number of sessions open
+     *
+     * @return the number of sessions open
+     */
+    public int getOpenSessions() {
+        return openSessions.get();
+    }
+
+    /**
+     * Getter method for the number of sessions served since the start
+     *
+     * @return the number of sessions
+     */
+    public long getSessions() {
+        return sessions.sum();
+    }
+
+    /**
+     * Getter method for the number of requests served since the start
+     *
+     * @return the number of requests
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * Starts accepting connections, each on a new virtual thread
+     */
+    public void start() {
+        acceptor = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    executor.submit(() -> serve(socket));
+                } catch (IOException e) {
+                    if (!serverSocket.isClosed()) {
+                        System.err.println("Could not accept a connection: " + e.getMessage());
+                    }
+                }
+            }
+        }, "FloodIt server");
+        acceptor.start();
+    }
+
+    /**
+     * Stops accepting connections, and closes the sessions
+     */
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) { }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Serves the requests of a connection until it is closed
+     */
+    private void serve(Socket socket) {
+        openSessions.incrementAndGet();
+        sessions.increment();
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                     s.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(new OutputStreamWriter(
+                     s.getOutputStream(), StandardCharsets.US_ASCII))) {
+            s.setTcpNoDelay(true);
+            Session session = new Session();
+            String line;
+            while ((line = in.readLine()) != null) {
+                requests.increment();
+                boolean open = session.handle(line.trim(), out);
+                out.flush();
+                if (!open) break;
+            }
+        } catch (SocketException e) {
+            // the client closed the connection
+        } catch (IOException e) {
+            System.err.println("Session failed: " + e.getMessage());
+        } finally {
+            openSessions.decrementAndGet();
+        }
+    }
+
+    /**
+     * The game of a connection
+     */
+    private static class Session {
+
+        private FloodEngine engine;
+
+        /**
+         * Handles a request, and writes its answer
+         *
+         * @return false if the session is closed
+         */
+        private boolean handle(String line, Writer out) throws IOException {
+            String[] words = line.split("\\s+");
+            String command = words[0].toUpperCase();
+            try {
+                if (command.equals("QUIT")) {
+                    out.write("BYE\n");
+                    return false;
+                } else if (command.equals("NEW")) {
+                    int size = Integer.parseInt(parameter(words, 1));
+                    if (size < 1 || size > MAX_SIZE) {
+                        throw new IllegalArgumentException("The size must be between 1 and " + MAX_SIZE);
+                    }
+                    GameModel model = words.length > 2 ? new GameModel(size, Long.parseLong(words[2]))
+                            : new GameModel(size);
+                    engine = new FloodEngine(model);
+                } else if (engine == null) {
+                    throw new IllegalArgumentException(command.isEmpty() ? "Empty request"
+                            : "No game, start one with NEW");
+                } else if (command.equals("CLICK")) {
+                    int row = Integer.parseInt(parameter(words, 1));
+                    int column = Integer.parseInt(parameter(words, 2));
+                    GameModel model = engine.getModel();
+                    if (row < 0 || row >= model.getSize() || column < 0 || column >= model.getSize()) {
+                        throw new IllegalArgumentException("No dot at " + row + " " + column);
+                    }
+                    if (model.getInitialDot()) {
+                        engine.start(row, column);
+                    } else {
+                        engine.apply(model.getColor(row, column));
+                    }
+                } else if (command.equals("COLOR")) {
+                    int color = Integer.parseInt(parameter(words, 1));
+                    if (color < 0 || color >= GameModel.NUMBER_OF_COLORS) {
+                        throw new IllegalArgumentException("No color " + color);
+                    }
+                    if (engine.getModel().getInitialDot()) {
+                        throw new IllegalArgumentException("Select the initial dot first");
+                    }
+                    engine.apply(color);
+                } else if (command.equals("UNDO")) {
+                    if (!engine.undo()) throw new IllegalArgumentException("Nothing to undo");
+                } else if (command.equals("REDO")) {
+                    if (!engine.redo()) throw new IllegalArgumentException("Nothing to redo");
+                } else if (command.equals("SETTINGS")) {
+                    String plane = parameter(words, 1).toLowerCase();
+                    String orthogonal = parameter(words, 2).toLowerCase();
+                    if (!plane.matches("plane|torus") || !orthogonal.matches("orthogonal|diagonal")) {
+                        throw new IllegalArgumentException("Usage: SETTINGS plane|torus orthogonal|diagonal");
+                    }
+                    engine.getModel().setPlaneStatus(plane.equals("plane"));
+                    engine.getModel().setOrthogonalStatus(orthogonal.equals("orthogonal"));
+                } else if (!command.equals("STATE") && !command.equals("BOARD")) {
+                    throw new IllegalArgumentException("Unknown command " + words[0]);
+                }
+            } catch (IllegalArgumentException e) {
+                // NumberFormatException included
+                out.write("ERROR " + e.getMessage() + "\n");
+                return true;
+            } catch (RuntimeException e) {
+                // the game may be left half updated, it is dropped
+                engine = null;
+                out.write("ERROR Internal error, the game is lost: " + e + "\n");
+                return true;
+            }
+
+            GameModel model = engine.getModel();
+            out.write("OK size=" + model.getSize() + " seed=" + model.getSeed()
+                    + " steps=" + model.getNumberOfSteps() + " color=" + model.getCurrentSelectedColor()
+                    + " captured=" + model.getNumberCaptured() + " started=" + !model.getInitialDot()
+                    + " finished=" + (!model.getInitialDot() && engine.isFinished()) + "\n");
+            if (command.equals("BOARD")) {
+                char[] row = new char[model.getSize() + 1];
+                row[model.getSize()] = '\n';
+                for (int i = 0; i < model.getSize(); i++) {
+                    for (int j = 0; j < model.getSize(); j++) {
+                        row[j] = (char) ('0' + model.getColor(i, j));
+                    }
+                    out.write(row);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns a parameter of a request
+         */
+        private static String parameter(String[] words, int index) {
+            if (index >= words.length) throw new IllegalArgumentException("Missing parameter");
+            return words[index];
+        }
+    }
+
+    /**
+     * Runs a server until the process is stopped. The parameter is the port
+     * (DEFAULT_PORT by default). The number of sessions and requests served is
+     * printed every 10 seconds while it changes.
+     *
+     * @param args
+     *            command line parameters
+     */
+    public static void main(String[] args) {
+        int port = DEFAULT_PORT;
+        try {
+            if (args.length > 0) port = Integer.parseInt(args[0]);
+        } catch (NumberFormatException e) {
+            System.out.println("Usage: server [port]");
+            return;
+        }
+        GameServer server;
+        try {
+            server = new GameServer(port);
+        } catch (IOException e) {
+            System.out.println("Could not open the port " + port + ": " + e.getMessage());
+            return;
+        }
+        server.start();
+        System.out.println("FloodIt server listening on localhost:" + server.getPort());
+        long served = 0;
+        while (true) {
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (server.getRequests() != served) {
+                served = server.getRequests();
+                System.out.println(server.getOpenSessions() + " sessions open, " + server.getSessions()
+                        + " served, " + served + " requests");
+            }
+        }
+        server.close();
+    }
+}
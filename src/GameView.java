@@ -1,4 +1,6 @@
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import javax.swing.*;
 
 /**
@@ -6,21 +8,46 @@ import javax.swing.*;
  * <b>JFrame</b> and lays out an instance of  <b>BoardView</b> (the actual game) and 
  * two instances of JButton. The action listener for the buttons is the controller.
  *
+ * Above the board, a palette of the six colors shows next to each of them the
+ * number of dots selecting it would capture; a color of the palette can be
+ * clicked like a dot of that color.
+ *
+ * The board is a grid of <b>DotButton</b> instances, or, for boards larger than
+ * CANVAS_SIZE or if the system property floodit.canvas is true, a single
+ * <b>BoardCanvas</b> in a scroll pane, which can be zoomed. When the mouse hovers
+ * a dot, the dots selecting its color would capture are highlighted.
+ *
  * @author Guy-Vincent Jourdan, University of Ottawa
  */
 
 public class GameView extends JFrame {
 
     /**
-     * The board is a two dimensionnal array of DotButtons instances
+     * Boards larger than this size are drawn by a BoardCanvas
+     */
+    public static final int CANVAS_SIZE = 50;
+
+    /**
+     * The board is a two dimensionnal array of DotButtons instances,
+     * or a BoardCanvas (the other one being null)
      */
     private DotButton[][] board;
+    private BoardCanvas canvas;
  
     private GameController gameController;
 
     private JLabel scoreLabel;
+    private JLabel seedLabel;
     private JButton buttonUndo;
     private JButton buttonRedo;
+    private DotButton hintDot;
+    private JLabel hintLabel;
+
+    /**
+     * The colors of the palette, and the gain of each
+     */
+    private DotButton[] palette;
+    private JLabel[] gainLabels;
     
     
     
@@ -55,6 +82,14 @@ public class GameView extends JFrame {
         buttonRedo.setEnabled(false);
         buttonRedo.addActionListener(gameController);
 
+        JButton buttonHint = new JButton("Hint");
+        buttonHint.setFocusPainted(false);
+        buttonHint.addActionListener(gameController);
+
+        hintDot = new DotButton(GameModel.COLOR_0, DotButton.SMALL_SIZE);
+        hintDot.setVisible(false);
+        hintLabel = new JLabel();
+
         JButton buttonSettings = new JButton("Settings");
         buttonSettings.setFocusPainted(false);
         buttonSettings.addActionListener(gameController);
@@ -63,27 +98,79 @@ public class GameView extends JFrame {
         ctrl.setBackground(Color.WHITE);
         ctrl.add(buttonUndo);
         ctrl.add(buttonRedo);
+        ctrl.add(buttonHint);
         ctrl.add(buttonSettings);
+        boolean useCanvas = model.getSize() > CANVAS_SIZE || Boolean.getBoolean("floodit.canvas");
+        if (useCanvas) {
+            JButton buttonZoomIn = new JButton("Zoom in");
+            buttonZoomIn.setFocusPainted(false);
+            buttonZoomIn.addActionListener(gameController);
+            JButton buttonZoomOut = new JButton("Zoom out");
+            buttonZoomOut.setFocusPainted(false);
+            buttonZoomOut.addActionListener(gameController);
+            ctrl.add(buttonZoomIn);
+            ctrl.add(buttonZoomOut);
+        }
         
         JPanel northPanel = new JPanel();
         northPanel.setLayout(new GridLayout(3,1));
         northPanel.add(ctrl);
+        JPanel hint = new JPanel();
+        hint.setBackground(Color.WHITE);
+        hint.add(hintLabel);
+        hint.add(hintDot);
+        northPanel.add(hint);
+        JPanel colors = new JPanel();
+        colors.setBackground(Color.WHITE);
+        palette = new DotButton[GameModel.NUMBER_OF_COLORS];
+        gainLabels = new JLabel[GameModel.NUMBER_OF_COLORS];
+        for (int color = 0; color < GameModel.NUMBER_OF_COLORS; color++) {
+            palette[color] = new DotButton(color, DotButton.SMALL_SIZE);
+            palette[color].addActionListener(gameController);
+            gainLabels[color] = new JLabel();
+            colors.add(palette[color]);
+            colors.add(gainLabels[color]);
+        }
+        northPanel.add(colors);
         northPanel.setBorder(BorderFactory.createEmptyBorder(20, 10, 0, 10));
         northPanel.setBackground(Color.WHITE);
         add(northPanel, BorderLayout.NORTH);
 
         JPanel panel = new JPanel();
         panel.setBackground(Color.WHITE);
-        panel.setLayout(new GridLayout(model.getSize(), model.getSize()));
         panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 0, 20));
-        board = new DotButton[model.getSize()][model.getSize()];
-
-        for (int row = 0; row < model.getSize(); row++) {
-            for (int column = 0; column < model.getSize(); column++) {
-                board[row][column] = new DotButton(row, column, model.getColor(row,column), 
-                    (model.getSize() < 26 ? DotButton.MEDIUM_SIZE : DotButton.SMALL_SIZE));
-                panel.add(board[row][column]);
-                board[row][column].addActionListener(gameController);
+        if (useCanvas) {
+            // cells as large as the medium balls, or as large as the screen allows
+            int height = Toolkit.getDefaultToolkit().getScreenSize().height - 300;
+            int cellSize = Math.min(28, height / model.getSize());
+            canvas = new BoardCanvas(model, gameController, cellSize);
+            JScrollPane scrollPane = new JScrollPane(canvas);
+            scrollPane.setBorder(BorderFactory.createEmptyBorder());
+            scrollPane.getViewport().setBackground(Color.WHITE);
+            panel.setLayout(new BorderLayout());
+            panel.add(scrollPane, BorderLayout.CENTER);
+        } else {
+            panel.setLayout(new GridLayout(model.getSize(), model.getSize()));
+            board = new DotButton[model.getSize()][model.getSize()];
+            MouseAdapter hover = new MouseAdapter() {
+                public void mouseEntered(MouseEvent e) {
+                    DotButton dot = (DotButton) e.getSource();
+                    gameController.dotHovered(dot.getRow(), dot.getColumn());
+                }
+
+                public void mouseExited(MouseEvent e) {
+                    gameController.hoverEnded();
+                }
+            };
+
+            for (int row = 0; row < model.getSize(); row++) {
+                for (int column = 0; column < model.getSize(); column++) {
+                    board[row][column] = new DotButton(row, column, model.getColor(row,column), 
+                        (model.getSize() < 26 ? DotButton.MEDIUM_SIZE : DotButton.SMALL_SIZE));
+                    panel.add(board[row][column]);
+                    board[row][column].addActionListener(gameController);
+                    board[row][column].addMouseListener(hover);
+                }
             }
         }
     	add(panel, BorderLayout.CENTER);
@@ -99,7 +186,9 @@ public class GameView extends JFrame {
         JPanel control = new JPanel();
         control.setBackground(Color.WHITE);
         scoreLabel = new JLabel();
+        seedLabel = new JLabel();
         control.add(scoreLabel);
+        control.add(seedLabel);
         control.add(buttonReset);
         control.add(buttonExit);
 
@@ -118,23 +207,113 @@ public class GameView extends JFrame {
     }
 
     /**
-     * update the status of the board's DotButton instances based on the current game model
+     * update the status of the board's DotButton instances based on the current game model.
+     * DotButton ignores the colors that did not change, and the cells that did change
+     * repaint their own bounds, so the frame is not repainted as a whole.
      */
 
     public void update(GameModel gameModel){
-        for(int i = 0; i < gameModel.getSize(); i++){
-            for(int j = 0; j < gameModel.getSize(); j++){
-                board[i][j].setColor(gameModel.getColor(i,j));
+        long start = System.nanoTime();
+        Metrics.GameEvent event = Metrics.start(Metrics.VIEW_UPDATE);
+        if (canvas != null) {
+            canvas.update(gameModel);
+        } else {
+            for(int i = 0; i < gameModel.getSize(); i++){
+                for(int j = 0; j < gameModel.getSize(); j++){
+                    board[i][j].setColor(gameModel.getColor(i,j));
+                }
             }
         }
         if (gameModel.getInitialDot()) {
            scoreLabel.setText("Select initial dot");
-           buttonUndo.setEnabled(false);
         } else {
             scoreLabel.setText("Number of steps: " + gameModel.getNumberOfSteps());
-            buttonUndo.setEnabled(true);
         }
-        repaint();
+        seedLabel.setText("Seed: " + gameModel.getSeed());
+        Metrics.finish(Metrics.VIEW_UPDATE, event, start, gameModel,
+                (long) gameModel.getSize() * gameModel.getSize(), 0);
+    }
+
+    /**
+     * zooms the board in or out, if it is drawn by a BoardCanvas
+     *
+     * @param steps
+     *            the number of steps, positive to zoom in and negative to zoom out
+     */
+    public void zoom(int steps) {
+        if (canvas != null) canvas.zoom(steps);
+    }
+
+    /**
+     * enables the undo and redo buttons according to the history of moves
+     */
+    public void updateHistory(boolean canUndo, boolean canRedo) {
+        buttonUndo.setEnabled(canUndo);
+        buttonRedo.setEnabled(canRedo);
+    }
+
+    /**
+     * shows the color suggested by the hint engine
+     *
+     * @param color
+     *            the suggested color
+     * @param moves
+     *            the number of moves of the game found, 0 if the search
+     *            did not finish a game
+     */
+    public void showHint(int color, int moves) {
+        hintDot.setColor(color);
+        hintDot.setVisible(true);
+        hintLabel.setText(moves > 0 ? "Hint (done in " + moves + " more moves):" : "Hint:");
+    }
+
+    /**
+     * shows next to each color of the palette the number of dots selecting
+     * it would capture
+     *
+     * @param gains
+     *            the gain of each color, or null to show none
+     */
+    public void showGains(int[] gains) {
+        for (int color = 0; color < GameModel.NUMBER_OF_COLORS; color++) {
+            gainLabels[color].setText(gains == null ? "" : "+" + gains[color]);
+        }
+    }
+
+    /**
+     * highlights the dots the move hovered would capture
+     *
+     * @param dots
+     *            the dots, the dot (i,j) being bit i*size+j, or null to
+     *            highlight none
+     */
+    public void showPreview(long[] dots) {
+        if (canvas != null) {
+            canvas.setPreview(dots);
+            return;
+        }
+        for (int i = 0; i < board.length; i++) {
+            for (int j = 0; j < board.length; j++) {
+                int index = i * board.length + j;
+                board[i][j].setHighlighted(dots != null && (dots[index >>> 6] & (1L << index)) != 0);
+            }
+        }
+    }
+
+    /**
+     * shows that a hint is being searched
+     */
+    public void searchingHint() {
+        hintDot.setVisible(false);
+        hintLabel.setText("Searching a hint...");
+    }
+
+    /**
+     * hides the last hint
+     */
+    public void clearHint() {
+        hintDot.setVisible(false);
+        hintLabel.setText("");
     }
     
     public void settings(GameModel model) {
@@ -22,7 +22,7 @@ public class GenericLinkedStack<E> implements Stack<E>  {
     
     public void push( E info ) {
         if (info == null) throw new NullPointerException();
-        top = new Elem (info, top);
+        top = new Elem<E>(info, top);
     }
     
     public E peek() {
@@ -0,0 +1,238 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.swing.SwingUtilities;
+
+/**
+ * The class <b>HintEngine</b> suggests the next color to play. The search runs on a
+ * background thread, never on the Event Dispatch Thread, so that the interface
+ * stays responsive on large boards.
+ *
+ * A request takes a <b>BitboardFlood</b> snapshot of the model, then runs beam
+ * searches of increasing width (1, the greedy search, then 2, 4, ...) until the
+ * time budget runs out. Each state of the beam is expanded with every color that
+ * captures dots, and the states capturing the most dots are kept. Each time a
+ * search finds a shorter game its first color is published to the listener, on
+ * the Event Dispatch Thread. Until the greedy search finishes a game, which can
+ * take longer than the budget on large boards, the first color of its best state
+ * is published whenever it changes.
+ *
+ * A new request, or <b>cancel</b>, interrupts the search in progress, and the
+ * answers it had not delivered yet are dropped.
+ */
+public class HintEngine {
+
+    /**
+     * The default time budget of a search in milliseconds
+     */
+    public static final long DEFAULT_TIME_BUDGET = 50;
+
+    /**
+     * Receives the hints, on the Event Dispatch Thread
+     */
+    public interface Listener {
+
+        /**
+         * Called with the best hint found so far
+         *
+         * @param color
+         *            the suggested color
+         * @param moves
+         *            the number of moves of the game found with that color
+         *            first, or 0 if no game could be finished in time
+         */
+        public abstract void hintFound(int color, int moves);
+    }
+
+    private Listener listener;
+    private long timeBudget;
+    private ExecutorService executor;
+
+    /**
+     * The search in progress, and the number of the last request: answers
+     * of older requests are stale
+     */
+    private Future<?> search;
+    private volatile long generation;
+
+    /**
+     * Constructor used for initializing the engine
+     *
+     * @param listener
+     *            the listener receiving the hints
+     * @param timeBudget
+     *            the maximum duration of a search in milliseconds
+     */
+    public HintEngine(Listener listener, long timeBudget) {
+        this.listener = listener;
+        this.timeBudget = timeBudget;
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "FloodIt hint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Setter method for the time budget of the next searches
+     *
+     * @param timeBudget
+     *            the maximum duration of a search in milliseconds
+     */
+    public void setTimeBudget(long timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Starts searching a hint for the current state of the model, cancelling
+     * the search in progress. Must be called on the Event Dispatch Thread,
+     * the model being read before returning. Does nothing if the initial dot
+     * is not selected or the game is finished.
+     *
+     * @param model
+     *            the model of the game
+     */
+    public void request(GameModel model) {
+        cancel();
+        if (model.getInitialDot() || model.isFinished()) return;
+        BitboardFlood start = new BitboardFlood(model);
+        long request = generation;
+        long deadline = System.currentTimeMillis() + timeBudget;
+        search = executor.submit(() -> search(start, request, deadline));
+    }
+
+    /**
+     * Cancels the search in progress, if any. Its remaining answers are not
+     * delivered.
+     */
+    public void cancel() {
+        generation++;
+        if (search != null) {
+            search.cancel(true);
+            search = null;
+        }
+    }
+
+    /**
+     * Runs beam searches of increasing width until the deadline
+     */
+    private void search(BitboardFlood start, long request, long deadline) {
+        int best = Integer.MAX_VALUE;
+        for (int width = 1; !isStale(request, deadline); width *= 2) {
+            int[] result = beamSearch(start, width, request, deadline, best == Integer.MAX_VALUE);
+            if (result == null) return;
+            if (result[1] < best) {
+                best = result[1];
+                publish(request, result[0], result[1]);
+            }
+            // a wider beam would keep the same states
+            if (result[2] == 0) return;
+        }
+    }
+
+    /**
+     * Runs one beam search
+     *
+     * @param progress
+     *            true to publish the first move of the best state when it
+     *            changes, until a game is finished
+     * @return the first color and the number of moves of the game found,
+     *         then 1 if states were left out of the beam and 0 otherwise,
+     *         or null if the search was stopped
+     */
+    private int[] beamSearch(BitboardFlood start, int width, long request, long deadline,
+                             boolean progress) {
+        List<Candidate> beam = new ArrayList<Candidate>();
+        beam.add(new Candidate(start, -1));
+        int truncated = 0;
+        int shown = -1;
+        for (int moves = 1; ; moves++) {
+            List<Candidate> next = new ArrayList<Candidate>();
+            for (Candidate candidate : beam) {
+                for (int color = 0; color < GameModel.NUMBER_OF_COLORS; color++) {
+                    if (isStale(request, deadline)) return null;
+                    if (color == candidate.board.getCurrentSelectedColor()) continue;
+                    BitboardFlood board = candidate.board.copy();
+                    if (board.apply(color) == 0) continue;
+                    int first = candidate.first < 0 ? color : candidate.first;
+                    if (board.isFinished()) return new int[] {first, moves, truncated};
+                    next.add(new Candidate(board, first));
+                }
+            }
+            next.sort((a, b) -> b.board.getNumberCaptured() - a.board.getNumberCaptured());
+            beam.clear();
+            Set<Captured> seen = new HashSet<Captured>();
+            for (Candidate candidate : next) {
+                if (!seen.add(new Captured(candidate.board.getCaptured()))) continue;
+                if (beam.size() == width) {
+                    truncated = 1;
+                    break;
+                }
+                beam.add(candidate);
+            }
+            if (progress && beam.get(0).first != shown) {
+                shown = beam.get(0).first;
+                publish(request, shown, 0);
+            }
+        }
+    }
+
+    /**
+     * returns true if the request was cancelled or ran out of time
+     */
+    private boolean isStale(long request, long deadline) {
+        return request != generation || Thread.currentThread().isInterrupted()
+                || System.currentTimeMillis() > deadline;
+    }
+
+    /**
+     * Delivers a hint on the Event Dispatch Thread, unless its request was
+     * cancelled in the meantime
+     */
+    private void publish(long request, int color, int moves) {
+        SwingUtilities.invokeLater(() -> {
+            if (request == generation) listener.hintFound(color, moves);
+        });
+    }
+
+    /**
+     * A state of the beam, with the first color played to reach it
+     */
+    private static class Candidate {
+
+        private BitboardFlood board;
+        private int first;
+
+        private Candidate(BitboardFlood board, int first) {
+            this.board = board;
+            this.first = first;
+        }
+    }
+
+    /**
+     * A set of captured dots, used to keep distinct states in the beam
+     */
+    private static class Captured {
+
+        private long[] captured;
+        private int hash;
+
+        private Captured(long[] captured) {
+            this.captured = captured;
+            hash = Arrays.hashCode(captured);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object other) {
+            return other instanceof Captured && Arrays.equals(captured, ((Captured) other).captured);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.Arrays;
+
+/**
+ * The class <b>IntStack</b> is a stack of ints stored in a growable array, used
+ * by the floods to hold the packed indices row*size+column of the dots to visit.
+ * Unlike <b>GenericLinkedStack</b>, pushing does not allocate a node: the array
+ * only grows, by doubling, until it is large enough, and a stack reused from move
+ * to move then allocates nothing.
+ *
+ * The primitive methods pushInt, popInt and peekInt avoid boxing; the methods of
+ * <b>Stack</b> are provided for the code written against the interface.
+ */
+public class IntStack implements Stack<Integer> {
+
+    private int[] elements;
+    private int size;
+
+    /**
+     * Constructor used for initializing an empty stack
+     */
+    public IntStack() {
+        this(16);
+    }
+
+    /**
+     * Constructor used for initializing an empty stack of a given capacity
+     *
+     * @param capacity
+     *            the number of elements the stack holds before growing
+     */
+    public IntStack(int capacity) {
+        elements = new int[Math.max(1, capacity)];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of elements of the stack
+     *
+     * @return the number of elements
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all the elements, keeping the capacity of the stack
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Puts an element onto the top of this stack.
+     *
+     * @param element the element be put onto the top of this stack.
+     */
+    public void pushInt(int element) {
+        if (size == elements.length) elements = Arrays.copyOf(elements, 2 * elements.length);
+        elements[size++] = element;
+    }
+
+    /**
+     * Removes and returns the element at the top of this stack.
+     *
+     * @return The top element of this stack.
+     */
+    public int popInt() {
+        if (size == 0) throw new EmptyStackException();
+        return elements[--size];
+    }
+
+    /**
+     * Returns the top element; does not change the state of this Stack.
+     *
+     * @return The top element of this stack without removing it.
+     */
+    public int peekInt() {
+        if (size == 0) throw new EmptyStackException();
+        return elements[size - 1];
+    }
+
+    public void push(Integer element) {
+        if (element == null) throw new NullPointerException();
+        pushInt(element);
+    }
+
+    public Integer pop() {
+        return popInt();
+    }
+
+    public Integer peek() {
+        return peekInt();
+    }
+}
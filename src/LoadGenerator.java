@@ -0,0 +1,203 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The class <b>LoadGenerator</b> plays games against a <b>GameServer</b> from many
+ * concurrent sessions, each on its own virtual thread, and reports the throughput
+ * and the latency of the requests. Each session plays a number of games: it starts
+ * a game on the board of a seed, selects the center dot, then plays random colors
+ * until the game is finished. The seeds are derived from a base seed and the
+ * number of the game, so a run can be reproduced.
+ */
+public class LoadGenerator {
+
+    private int port;
+    private int size;
+    private long seed;
+
+    /**
+     * Constructor used for initializing a generator
+     *
+     * @param port
+     *            the port of the server, on the loopback interface
+     * @param size
+     *            the size of the boards
+     * @param seed
+     *            the seed from which the boards are generated
+     */
+    public LoadGenerator(int port, int size, long seed) {
+        this.port = port;
+        this.size = size;
+        this.seed = seed;
+    }
+
+    /**
+     * Plays games from concurrent sessions, and prints a report
+     *
+     * @param sessionCount
+     *            the number of sessions
+     * @param games
+     *            the number of games per session
+     * @param out
+     *            the stream the report is printed to
+     * @throws IOException
+     *             if a session fails
+     */
+    public void run(int sessionCount, int games, PrintStream out) throws IOException {
+        long time = System.nanoTime();
+        List<Future<long[]>> sessions = new ArrayList<Future<long[]>>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int s = 0; s < sessionCount; s++) {
+                int session = s;
+                sessions.add(executor.submit(() -> play(session, games)));
+            }
+        }
+        time = System.nanoTime() - time;
+
+        long[][] results = new long[sessionCount][];
+        int count = 0;
+        try {
+            for (int s = 0; s < sessionCount; s++) {
+                results[s] = sessions.get(s).get();
+                count += results[s].length;
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException("A session failed: " + e.getCause(), e);
+        }
+        long[] latencies = new long[count];
+        int k = 0;
+        for (long[] result : results) {
+            System.arraycopy(result, 0, latencies, k, result.length);
+            k += result.length;
+        }
+        Arrays.sort(latencies);
+        long total = 0;
+        for (long latency : latencies) total += latency;
+
+        double seconds = time / 1e9;
+        out.printf("%d sessions, %d games of size %d, %d requests in %.2f s%n",
+                sessionCount, (long) sessionCount * games, size, count, seconds);
+        out.printf("Throughput: %.0f games/s, %.0f requests/s%n",
+                sessionCount * games / seconds, count / seconds);
+        if (count > 0) {
+            out.printf("Latency: mean %.3f ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                    total / 1e6 / count, latencies[(count - 1) / 2] / 1e6,
+                    latencies[(int) Math.ceil(0.99 * count) - 1] / 1e6, latencies[count - 1] / 1e6);
+        }
+    }
+
+    /**
+     * Plays the games of a session
+     *
+     * @return the latencies of its requests in nanoseconds
+     */
+    private long[] play(int session, int games) throws IOException {
+        long[] latencies = new long[64];
+        int count = 0;
+        SplittableRandom random = new SplittableRandom(seed + session);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                     socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(new OutputStreamWriter(
+                     socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+            for (int game = 0; game < games; game++) {
+                String state = null;
+                int moves = 0;
+                while (state == null || !value(state, "finished").equals("true")) {
+                    String request;
+                    if (state == null) {
+                        request = "NEW " + size + " " + (seed + (long) session * games + game);
+                    } else if (value(state, "started").equals("false")) {
+                        request = "CLICK " + size / 2 + " " + size / 2;
+                    } else {
+                        int color = random.nextInt(GameModel.NUMBER_OF_COLORS - 1);
+                        if (color >= Integer.parseInt(value(state, "color"))) color++;
+                        request = "COLOR " + color;
+                    }
+                    long start = System.nanoTime();
+                    out.write(request + "\n");
+                    out.flush();
+                    state = in.readLine();
+                    if (count == latencies.length) latencies = Arrays.copyOf(latencies, 2 * count);
+                    latencies[count++] = System.nanoTime() - start;
+                    if (state == null || !state.startsWith("OK")) {
+                        throw new IOException("Request " + request + " failed: " + state);
+                    }
+                    if (++moves > 100 * size * size) throw new IOException("The game does not finish");
+                }
+            }
+            out.write("QUIT\n");
+            out.flush();
+            in.readLine();
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    /**
+     * Returns the value of a name=value pair of the state of a game
+     */
+    private static String value(String state, String name) {
+        int start = state.indexOf(" " + name + "=");
+        if (start < 0) return "";
+        start += name.length() + 2;
+        int end = state.indexOf(' ', start);
+        return state.substring(start, end < 0 ? state.length() : end);
+    }
+
+    /**
+     * Runs the load generator. The parameters are the number of sessions
+     * (1000 by default), the number of games per session (10 by default) and
+     * the size of the boards (14 by default). The port of the server is given
+     * by the system property floodit.port; if it is not set, a server is
+     * started in this JVM on a free port. The seed can be set with the system
+     * property floodit.seed.
+     *
+     * @param args
+     *            command line parameters
+     */
+    public static void main(String[] args) {
+        int sessions = 1000;
+        int games = 10;
+        int size = 14;
+        try {
+            if (args.length > 0) sessions = Integer.parseInt(args[0]);
+            if (args.length > 1) games = Integer.parseInt(args[1]);
+            if (args.length > 2) size = Integer.parseInt(args[2]);
+        } catch (NumberFormatException e) {
+            System.out.println("Usage: load [sessions [games [size]]]");
+            return;
+        }
+        long seed = Long.getLong("floodit.seed", 0L);
+        Integer port = Integer.getInteger("floodit.port");
+        GameServer server = null;
+        try {
+            if (port == null) {
+                server = new GameServer(0);
+                server.start();
+                port = server.getPort();
+            }
+            new LoadGenerator(port, size, seed).run(sessions, games, System.out);
+        } catch (IOException e) {
+            System.out.println("The load test failed: " + e.getMessage());
+        } finally {
+            if (server != null) server.close();
+        }
+    }
+}
@@ -0,0 +1,305 @@
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The class <b>Metrics</b> measures the hot paths of the game: a move selected by
+ * the player, the flood it triggers, the cloning and the saving of the model, and
+ * the update of the view. Each measure is:
+ * - emitted as a Java Flight Recorder event of the category ``FloodIt'', with its
+ *   duration, the size of the board, the plane/torus and orthogonal/diagonal mode,
+ *   and the number of cells visited and captured, when a recording is running
+ *   (for instance with -XX:StartFlightRecording)
+ * - counted in process, with the total of cells visited and captured and a
+ *   histogram of the durations, which <b>dump</b> prints
+ *
+ * The counters are dumped at exit if the system property floodit.metrics is set,
+ * to the standard error if it is ``true'' and to the file it names otherwise.
+ * The counters, the maximum durations and the buckets of the histogram are
+ * striped adders and accumulators: they are updated without locks from any
+ * thread, and threads measuring at the same time, like the sessions of a
+ * <b>GameServer</b>, update separate cells instead of contending on one. An
+ * event is only allocated when its type is recorded, so that a measure
+ * allocates nothing otherwise.
+ */
+public class Metrics {
+
+    /**
+     * The measured operations
+     */
+    public static final int MOVE = 0;
+    public static final int FLOOD = 1;
+    public static final int CLONE = 2;
+    public static final int SAVE = 3;
+    public static final int VIEW_UPDATE = 4;
+
+    private static final String[] NAMES = {"move", "flood", "clone", "save", "view update"};
+
+    /**
+     * The durations are counted in buckets of a quarter of a power of two of
+     * nanoseconds
+     */
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKETS = 62 * SUB_BUCKETS;
+
+    private static final LongAdder[] count = adders(NAMES.length);
+    private static final LongAdder[] totalNanos = adders(NAMES.length);
+    private static final LongAdder[] visited = adders(NAMES.length);
+    private static final LongAdder[] captured = adders(NAMES.length);
+    private static final LongAccumulator[] maxNanos = new LongAccumulator[NAMES.length];
+    private static final LongAdder[] histogram = adders(NAMES.length * BUCKETS);
+
+    /**
+     * The types of the events of the operations, to create an event only
+     * when it is recorded
+     */
+    private static final EventType[] TYPES = {
+        EventType.getEventType(MoveEvent.class), EventType.getEventType(FloodEvent.class),
+        EventType.getEventType(CloneEvent.class), EventType.getEventType(SaveEvent.class),
+        EventType.getEventType(ViewUpdateEvent.class)
+    };
+
+    static {
+        for (int operation = 0; operation < NAMES.length; operation++) {
+            maxNanos[operation] = new LongAccumulator(Long::max, 0);
+        }
+        String target = System.getProperty("floodit.metrics");
+        if (target != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (target.equals("true")) {
+                    dump(System.err);
+                    return;
+                }
+                try (PrintStream out = new PrintStream(target)) {
+                    dump(out);
+                } catch (FileNotFoundException e) {
+                    System.err.println("Could not write the metrics: " + e.getMessage());
+                }
+            }));
+        }
+    }
+
+    /**
+     * Starts the event of an operation, if that event is recorded. The
+     * start of the operation must also be taken with System.nanoTime().
+     *
+     * @param operation
+     *            the operation, MOVE, FLOOD, CLONE, SAVE or VIEW_UPDATE
+     * @return the event, to pass to <b>finish</b>, or null if it is not
+     *         recorded
+     */
+    public static GameEvent start(int operation) {
+        if (!TYPES[operation].isEnabled()) return null;
+        GameEvent event;
+        switch (operation) {
+            case MOVE:
+                event = new MoveEvent();
+                break;
+            case FLOOD:
+                event = new FloodEvent();
+                break;
+            case CLONE:
+                event = new CloneEvent();
+                break;
+            case SAVE:
+                event = new SaveEvent();
+                break;
+            default:
+                event = new ViewUpdateEvent();
+                break;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Finishes measuring an operation: counts it, and emits its event if
+     * it is recorded
+     *
+     * @param operation
+     *            the operation, MOVE, FLOOD, CLONE, SAVE or VIEW_UPDATE
+     * @param event
+     *            the event returned by <b>start</b>, or null
+     * @param startNanos
+     *            the value of System.nanoTime() when the operation started
+     * @param model
+     *            the model of the game
+     * @param cellsVisited
+     *            the number of cells the operation visited
+     * @param cellsCaptured
+     *            the number of cells the operation captured
+     */
+    public static void finish(int operation, GameEvent event, long startNanos, GameModel model,
+                              long cellsVisited, long cellsCaptured) {
+        record(operation, System.nanoTime() - startNanos, cellsVisited, cellsCaptured);
+        if (event == null) return;
+        event.end();
+        if (event.shouldCommit()) {
+            event.boardSize = model.getSize();
+            event.mode = (model.getPlaneStatus() ? "plane " : "torus ")
+                    + (model.getOrthogonalStatus() ? "orthogonal" : "diagonal");
+            event.cellsVisited = cellsVisited;
+            event.cellsCaptured = cellsCaptured;
+            event.commit();
+        }
+    }
+
+    /**
+     * Counts an operation
+     *
+     * @param operation
+     *            the operation, MOVE, FLOOD, CLONE, SAVE or VIEW_UPDATE
+     * @param nanos
+     *            its duration in nanoseconds
+     * @param cellsVisited
+     *            the number of cells it visited
+     * @param cellsCaptured
+     *            the number of cells it captured
+     */
+    public static void record(int operation, long nanos, long cellsVisited, long cellsCaptured) {
+        nanos = Math.max(0, nanos);
+        count[operation].increment();
+        totalNanos[operation].add(nanos);
+        visited[operation].add(cellsVisited);
+        captured[operation].add(cellsCaptured);
+        maxNanos[operation].accumulate(nanos);
+        histogram[operation * BUCKETS + bucket(nanos)].increment();
+    }
+
+    /**
+     * Prints the counters of each operation: the number of operations, the
+     * mean, median, 99th percentile and maximum durations, and the total
+     * numbers of cells visited and captured. The percentiles are accurate
+     * within 25%.
+     *
+     * @param out
+     *            the stream to print to
+     */
+    public static void dump(PrintStream out) {
+        out.printf("%-12s %8s %10s %10s %10s %10s %14s %14s%n", "operation", "count", "mean ms",
+                "p50 ms", "p99 ms", "max ms", "cells visited", "cells captured");
+        for (int operation = 0; operation < NAMES.length; operation++) {
+            long n = count[operation].sum();
+            if (n == 0) continue;
+            long max = maxNanos[operation].get();
+            out.printf("%-12s %8d %10.3f %10.3f %10.3f %10.3f %14d %14d%n", NAMES[operation], n,
+                    totalNanos[operation].sum() / 1e6 / n,
+                    Math.min(max, percentile(operation, n, 0.5)) / 1e6,
+                    Math.min(max, percentile(operation, n, 0.99)) / 1e6,
+                    max / 1e6, visited[operation].sum(), captured[operation].sum());
+        }
+        out.flush();
+    }
+
+    /**
+     * Clears all the counters
+     */
+    public static void reset() {
+        for (int operation = 0; operation < NAMES.length; operation++) {
+            count[operation].reset();
+            totalNanos[operation].reset();
+            visited[operation].reset();
+            captured[operation].reset();
+            maxNanos[operation].reset();
+        }
+        for (LongAdder adder : histogram) adder.reset();
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the given fraction of the
+     * durations of an operation
+     */
+    private static long percentile(int operation, long n, double fraction) {
+        long rank = (long) Math.ceil(fraction * n);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += histogram[operation * BUCKETS + b].sum();
+            if (seen >= rank) return lowerBound(b + 1);
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the bucket of a duration: the durations below 4 ns have their
+     * own bucket, and each power of two above is cut into SUB_BUCKETS buckets
+     */
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) nanos;
+        int log = 63 - Long.numberOfLeadingZeros(nanos);
+        return (log - 1) * SUB_BUCKETS + (int) ((nanos >>> (log - 2)) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Returns the smallest duration of a bucket
+     */
+    private static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int log = bucket / SUB_BUCKETS + 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (log - 2);
+    }
+
+    private static LongAdder[] adders(int length) {
+        LongAdder[] adders = new LongAdder[length];
+        for (int k = 0; k < length; k++) {
+            adders[k] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * The fields common to the events of the game
+     */
+    @Category("FloodIt")
+    public abstract static class GameEvent extends Event {
+
+        @Label("Board Size")
+        int boardSize;
+
+        @Label("Mode")
+        @Description("Plane or torus, orthogonal or diagonal")
+        String mode;
+
+        @Label("Cells Visited")
+        long cellsVisited;
+
+        @Label("Cells Captured")
+        long cellsCaptured;
+    }
+
+    @Name("floodit.Move")
+    @Label("Move")
+    @Description("A color selected by the player, flood and view update included")
+    public static class MoveEvent extends GameEvent {
+    }
+
+    @Name("floodit.Flood")
+    @Label("Flood")
+    @Description("The dots captured by a color")
+    public static class FloodEvent extends GameEvent {
+    }
+
+    @Name("floodit.Clone")
+    @Label("Clone")
+    @Description("A deep copy of the model")
+    public static class CloneEvent extends GameEvent {
+    }
+
+    @Name("floodit.Save")
+    @Label("Save")
+    @Description("The model saved to a file")
+    public static class SaveEvent extends GameEvent {
+    }
+
+    @Name("floodit.ViewUpdate")
+    @Label("View Update")
+    @Description("The board of the view updated from the model")
+    public static class ViewUpdateEvent extends GameEvent {
+    }
+}
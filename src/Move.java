@@ -0,0 +1,148 @@
+import java.util.Arrays;
+
+/**
+ * The class <b>Move</b> records the changes made to a <b>GameModel</b> by one action
+ * of the player (the selection of the initial dot or of a new color): the dots
+ * that were captured, and the selected color, number of steps and number of
+ * captured dots before and after the action. A move can then be undone and redone
+ * on the model at a cost proportional to the number of dots it captured.
+ */
+public class Move {
+
+    /**
+     * The state of the model before the move
+     */
+    private int colorBefore;
+    private int stepsBefore;
+    private int capturedBefore;
+    private boolean initialDotBefore;
+
+    /**
+     * The state of the model after the move
+     */
+    private int colorAfter;
+    private int stepsAfter;
+    private int capturedAfter;
+    private boolean initialDotAfter;
+
+    /**
+     * The dots captured by the move, as packed indices row*size+column
+     */
+    private int[] dots;
+
+    /**
+     * Constructor used for starting to record a move. It must be called before
+     * the model is modified.
+     *
+     * @param model
+     *            the model of the game
+     */
+    public Move(GameModel model) {
+        colorBefore = model.getCurrentSelectedColor();
+        stepsBefore = model.getNumberOfSteps();
+        capturedBefore = model.getNumberCaptured();
+        initialDotBefore = model.getInitialDot();
+    }
+
+    /**
+     * Completes the record of the move, once the model has been updated.
+     *
+     * @param model
+     *            the model of the game
+     * @param dots
+     *            the dots captured by the move, as packed indices row*size+column
+     */
+    public void finish(GameModel model, int[] dots) {
+        colorAfter = model.getCurrentSelectedColor();
+        stepsAfter = model.getNumberOfSteps();
+        capturedAfter = model.getNumberCaptured();
+        initialDotAfter = model.getInitialDot();
+        this.dots = dots;
+    }
+
+    /**
+     * Restores the model to its state before the move
+     *
+     * @param model
+     *            the model of the game, in its state after the move
+     */
+    public void undo(GameModel model) {
+        int size = model.getSize();
+        for (int k = dots.length - 1; k >= 0; k--) {
+            model.release(dots[k] / size, dots[k] % size);
+        }
+        model.setCurrentSelectedColor(colorBefore);
+        model.setNumberOfSteps(stepsBefore);
+        model.setNumberCaptured(capturedBefore);
+        model.setInitialDot(initialDotBefore);
+    }
+
+    /**
+     * Restores the model to its state after the move
+     *
+     * @param model
+     *            the model of the game, in its state before the move
+     */
+    public void redo(GameModel model) {
+        int size = model.getSize();
+        for (int k = 0; k < dots.length; k++) {
+            model.capture(dots[k] / size, dots[k] % size);
+        }
+        model.setCurrentSelectedColor(colorAfter);
+        model.setNumberOfSteps(stepsAfter);
+        model.setNumberCaptured(capturedAfter);
+        model.setInitialDot(initialDotAfter);
+    }
+
+    /**
+     * Getter method for the dots captured by the move. The array must not be modified.
+     *
+     * @return the captured dots, as packed indices row*size+column
+     */
+    public int[] getDots() {
+        return dots;
+    }
+
+    /**
+     * Getter method for the color selected by the move
+     *
+     * @return the selected color
+     */
+    public int getColor() {
+        return colorAfter;
+    }
+
+    /**
+     * returns true if the move is the selection of the initial dot
+     *
+     * @return true for the selection of the initial dot
+     */
+    public boolean isInitialDot() {
+        return initialDotBefore && !initialDotAfter;
+    }
+
+    /**
+     * returns true if the other move, played from the same state, has the
+     * same result: the same dots captured and the same state after it. Two
+     * moves of the same color differ if the settings changed in between.
+     *
+     * @param other
+     *            another move
+     * @return true if both moves have the same result
+     */
+    public boolean hasSameResult(Move other) {
+        return isInitialDot() == other.isInitialDot() && colorAfter == other.colorAfter
+                && stepsAfter == other.stepsAfter && capturedAfter == other.capturedAfter
+                && Arrays.equals(dots, other.dots);
+    }
+
+    /**
+     * Builds a String representation of the move
+     *
+     * @return String representation of the move
+     */
+    public String toString() {
+        return (isInitialDot() ? "initial dot " : "color ") + colorAfter
+                + " captures " + Arrays.toString(dots);
+    }
+}
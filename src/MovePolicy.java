@@ -0,0 +1,22 @@
+import java.util.Random;
+
+/**
+ * A <b>MovePolicy</b> chooses the next color to play in a simulated game. Policies
+ * are shared by the threads of a <b>BatchSimulator</b>, so they must not keep any
+ * state between calls; the random generator passed is specific to the game.
+ */
+public interface MovePolicy {
+
+    /**
+     * Chooses the next color to play. The initial dot is already selected and
+     * the game is not finished.
+     *
+     * @param engine
+     *            the engine of the game, which must not be modified
+     * @param random
+     *            the random generator of the game
+     * @return the color to play, different from the selected one
+     */
+    public abstract int nextColor(FloodEngine engine, Random random);
+
+}
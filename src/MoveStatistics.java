@@ -0,0 +1,152 @@
+import java.util.Arrays;
+
+/**
+ * The class <b>MoveStatistics</b> accumulates the number of moves of a series of
+ * games as a histogram, and reports its mean, percentiles and distribution.
+ * Statistics accumulated separately, for instance by different threads, can be
+ * merged.
+ */
+public class MoveStatistics {
+
+    /**
+     * counts[m] is the number of games finished in m moves
+     */
+    private long[] counts;
+
+    private long games;
+    private long moves;
+
+    /**
+     * Constructor used for initializing empty statistics
+     */
+    public MoveStatistics() {
+        counts = new long[64];
+    }
+
+    /**
+     * Records one game
+     *
+     * @param moveCount
+     *            the number of moves of the game
+     */
+    public void add(int moveCount) {
+        if (moveCount >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(moveCount + 1, 2 * counts.length));
+        }
+        counts[moveCount]++;
+        games++;
+        moves += moveCount;
+    }
+
+    /**
+     * Adds the games recorded by other statistics to these
+     *
+     * @param other
+     *            the other statistics
+     */
+    public void merge(MoveStatistics other) {
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int m = 0; m < other.counts.length; m++) {
+            counts[m] += other.counts[m];
+        }
+        games += other.games;
+        moves += other.moves;
+    }
+
+    /**
+     * Getter method for the number of games recorded
+     *
+     * @return the number of games
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Getter method for the total number of moves of the games recorded
+     *
+     * @return the number of moves
+     */
+    public long getMoves() {
+        return moves;
+    }
+
+    /**
+     * Returns the mean number of moves per game
+     *
+     * @return the mean, or 0 if no game was recorded
+     */
+    public double getMean() {
+        return games == 0 ? 0 : (double) moves / games;
+    }
+
+    /**
+     * Returns the smallest number of moves m such that at least the given
+     * fraction of the games finished in m moves or less
+     *
+     * @param fraction
+     *            the fraction, between 0 and 1 (0.5 for the median)
+     * @return the percentile, or 0 if no game was recorded
+     */
+    public int getPercentile(double fraction) {
+        long rank = Math.max(1, (long) Math.ceil(fraction * games));
+        long seen = 0;
+        for (int m = 0; m < counts.length; m++) {
+            seen += counts[m];
+            if (seen >= rank) return m;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the smallest number of moves of a game
+     *
+     * @return the minimum, or 0 if no game was recorded
+     */
+    public int getMin() {
+        for (int m = 0; m < counts.length; m++) {
+            if (counts[m] > 0) return m;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the largest number of moves of a game
+     *
+     * @return the maximum, or 0 if no game was recorded
+     */
+    public int getMax() {
+        for (int m = counts.length - 1; m >= 0; m--) {
+            if (counts[m] > 0) return m;
+        }
+        return 0;
+    }
+
+    /**
+     * Builds a String representation of the distribution, one line per
+     * number of moves played by at least one game
+     *
+     * @return String representation of the distribution
+     */
+    public String distribution() {
+        StringBuffer b = new StringBuffer();
+        for (int m = getMin(); m <= getMax(); m++) {
+            if (counts[m] == 0) continue;
+            b.append(String.format("%6d moves: %10d games %6.2f%%%n", m, counts[m], 100.0 * counts[m] / games));
+        }
+        return b.toString();
+    }
+
+    /**
+     * Builds a String summary of the statistics
+     *
+     * @return String representation of the statistics
+     */
+    public String toString() {
+        return String.format("games %d, moves min %d mean %.2f median %d p90 %d p99 %d max %d",
+                games, getMin(), getMean(), getPercentile(0.5), getPercentile(0.9),
+                getPercentile(0.99), getMax());
+    }
+}
@@ -0,0 +1,235 @@
+/**
+ * The class <b>MoveTree</b> stores the moves played since the last reset as a tree.
+ * Each node holds one <b>Move</b>, that is only the changes made by that move, and
+ * the path from the root to a node gives the state of the game at that node.
+ * Undoing a move then playing a different one starts a new branch, and the old
+ * branch is kept so that it can be redone later; the branches share their common
+ * moves.
+ *
+ * Navigating from the current node to any other node undoes and redoes only the
+ * moves on the path between them.
+ */
+public class MoveTree {
+
+    /**
+     * A <b>Node</b> of the tree: a move and the moves played after it
+     */
+    public static class Node {
+
+        private Move move;
+        private Node parent;
+        private int depth;
+
+        /**
+         * The children of this node, as a linked list
+         */
+        private Node firstChild;
+        private Node nextSibling;
+
+        /**
+         * The child visited last, the one redo goes to
+         */
+        private Node redoChild;
+
+        private Node(Move move, Node parent) {
+            this.move = move;
+            this.parent = parent;
+            depth = parent == null ? 0 : parent.depth + 1;
+        }
+
+        /**
+         * Getter method for the move of this node
+         *
+         * @return the move, or null for the root
+         */
+        public Move getMove() {
+            return move;
+        }
+
+        /**
+         * Getter method for the parent of this node
+         *
+         * @return the parent, or null for the root
+         */
+        public Node getParent() {
+            return parent;
+        }
+
+        /**
+         * Getter method for the number of moves from the root to this node
+         *
+         * @return the depth of this node
+         */
+        public int getDepth() {
+            return depth;
+        }
+    }
+
+    private Node root;
+    private Node current;
+
+    /**
+     * Constructor used for initializing an empty tree
+     */
+    public MoveTree() {
+        clear();
+    }
+
+    /**
+     * Removes all the moves of the tree
+     */
+    public void clear() {
+        root = new Node(null, null);
+        current = root;
+    }
+
+    /**
+     * Adds a move, already applied to the model, after the current node and
+     * makes it the current node. If the same move was already played from the
+     * current node, with the same result, that branch is reused; a move of the
+     * same color played with other settings starts a new branch.
+     *
+     * @param move
+     *            the move played
+     */
+    public void add(Move move) {
+        for (Node child = current.firstChild; child != null; child = child.nextSibling) {
+            if (child.move.hasSameResult(move)) {
+                current.redoChild = child;
+                current = child;
+                return;
+            }
+        }
+        Node node = new Node(move, current);
+        node.nextSibling = current.firstChild;
+        current.firstChild = node;
+        current.redoChild = node;
+        current = node;
+    }
+
+    /**
+     * returns true if there is a move to undo
+     *
+     * @return true if the current node is not the root
+     */
+    public boolean canUndo() {
+        return current != root;
+    }
+
+    /**
+     * returns true if there is a move to redo
+     *
+     * @return true if the current node has a child
+     */
+    public boolean canRedo() {
+        return current.redoChild != null;
+    }
+
+    /**
+     * Undoes the move of the current node on the model and the frontier
+     *
+     * @param model
+     *            the model of the game
+     * @param frontier
+     *            the frontier of the captured region of the model
+     * @return the move undone, or null if there was none
+     */
+    public Move undo(GameModel model, FrontierFlood frontier) {
+        if (!canUndo()) return null;
+        return up(model, frontier);
+    }
+
+    /**
+     * Redoes the move of the child visited last
+     *
+     * @param model
+     *            the model of the game
+     * @param frontier
+     *            the frontier of the captured region of the model
+     * @return the move redone, or null if there was none
+     */
+    public Move redo(GameModel model, FrontierFlood frontier) {
+        if (!canRedo()) return null;
+        return down(current.redoChild, model, frontier);
+    }
+
+    /**
+     * Moves to the given node, undoing then redoing the moves on the path
+     * between the current node and that node
+     *
+     * @param target
+     *            a node of this tree
+     * @param model
+     *            the model of the game
+     * @param frontier
+     *            the frontier of the captured region of the model
+     */
+    public void goTo(Node target, GameModel model, FrontierFlood frontier) {
+        Node[] path = new Node[target.depth];
+        int length = 0;
+        Node node = target;
+        while (node.depth > current.depth) {
+            path[length++] = node;
+            node = node.parent;
+        }
+        while (current.depth > node.depth) {
+            up(model, frontier);
+        }
+        while (current != node) {
+            up(model, frontier);
+            path[length++] = node;
+            node = node.parent;
+        }
+        while (length > 0) {
+            down(path[--length], model, frontier);
+        }
+    }
+
+    /**
+     * Returns the node at the given depth on the current line of play: an
+     * ancestor of the current node, or a node reached by redoing moves
+     *
+     * @param depth
+     *            the number of moves from the root
+     * @return the node, or null if the line is shorter
+     */
+    public Node getNode(int depth) {
+        Node node = current;
+        while (node != null && node.depth > depth) node = node.parent;
+        while (node != null && node.depth < depth) node = node.redoChild;
+        return node;
+    }
+
+    /**
+     * Getter method for the current node
+     *
+     * @return the current node
+     */
+    public Node getCurrent() {
+        return current;
+    }
+
+    /**
+     * Undoes the move of the current node and moves to its parent
+     */
+    private Move up(GameModel model, FrontierFlood frontier) {
+        Move move = current.move;
+        move.undo(model);
+        frontier.release(move.getDots());
+        current.parent.redoChild = current;
+        current = current.parent;
+        return move;
+    }
+
+    /**
+     * Redoes the move of a child of the current node and moves to it
+     */
+    private Move down(Node child, GameModel model, FrontierFlood frontier) {
+        Move move = child.move;
+        move.redo(model);
+        frontier.capture(move.getDots());
+        current.redoChild = child;
+        current = child;
+        return move;
+    }
+}
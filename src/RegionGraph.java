@@ -0,0 +1,390 @@
+import java.util.Arrays;
+
+/**
+ * The class <b>RegionGraph</b> represents the board of a <b>GameModel</b> as a graph
+ * of regions: maximal groups of connected dots that are either all captured, or
+ * all uncaptured and of the same color. Two regions are adjacent if some of their
+ * dots are neighbours, according to the plane/torus and orthogonal/diagonal
+ * settings of the model.
+ *
+ * The graph is built with a <b>ComponentLabeling</b> of the board. Selecting
+ * a color then <b>merge</b>s the captured region with its neighbour regions of that
+ * color, at a cost that depends on the degree of these regions rather than on their
+ * number of dots. The regions next to the captured region, the frontier, are kept
+ * bucketed by color, so that the number of dots each color would capture is
+ * available at no cost.
+ *
+ * This is a standalone class, not an optional part of <b>GameModel</b>: the model
+ * used to keep a graph, built by <b>reset</b> and merged at each move, but nothing
+ * read it and it had to be rebuilt on every undo and redo, so it was dropped. A
+ * graph is built for a given state by whoever needs it, the <b>Solver</b> for
+ * instance, and follows only the moves it is merged with. The game gets the
+ * number of dots each color would capture from the <b>FrontierFlood</b>.
+ */
+public class RegionGraph {
+
+    /**
+     * Reference to the model of the game
+     */
+    private GameModel model;
+
+    /**
+     * The size of the board and the settings of the model when the graph was built
+     */
+    private int size;
+    private boolean plane;
+    private boolean orthogonal;
+
+    /**
+     * The region of each dot, the dot (i,j) being at index i*size+j
+     */
+    private int[] label;
+
+    /**
+     * The number of regions, and the color and number of dots of each region
+     */
+    private int regionCount;
+    private int[] regionColor;
+    private int[] regionSize;
+
+    /**
+     * The neighbour regions of the region r are adjacent[adjacentStart[r]]
+     * to adjacent[adjacentStart[r+1]-1]
+     */
+    private int[] adjacentStart;
+    private int[] adjacent;
+
+    /**
+     * The regions that are part of the captured region, and their number
+     */
+    private boolean[] absorbed;
+    private int absorbedCount;
+
+    /**
+     * For each color, the frontier regions of that color and their number of dots
+     */
+    private int[][] bucket;
+    private int[] bucketSize;
+    private int[] frontierDots;
+
+    /**
+     * The position of each region in its bucket, or -1 if it is not on the frontier
+     */
+    private int[] slot;
+
+    /**
+     * Constructor used for building the graph of a model.
+     *
+     * @param model
+     *            the model of the game
+     */
+    public RegionGraph(GameModel model) {
+        this.model = model;
+        build();
+    }
+
+    /**
+     * Constructor used by <b>copy</b>. The regions and their adjacency are shared.
+     */
+    private RegionGraph(RegionGraph other, GameModel model) {
+        this.model = model;
+        size = other.size;
+        plane = other.plane;
+        orthogonal = other.orthogonal;
+        label = other.label;
+        regionCount = other.regionCount;
+        regionColor = other.regionColor;
+        regionSize = other.regionSize;
+        adjacentStart = other.adjacentStart;
+        adjacent = other.adjacent;
+        absorbed = other.absorbed.clone();
+        absorbedCount = other.absorbedCount;
+        bucket = new int[GameModel.NUMBER_OF_COLORS][];
+        for (int color = 0; color < GameModel.NUMBER_OF_COLORS; color++) {
+            bucket[color] = other.bucket[color].clone();
+        }
+        bucketSize = other.bucketSize.clone();
+        frontierDots = other.frontierDots.clone();
+        slot = other.slot.clone();
+    }
+
+    /**
+     * Returns a copy of this graph for a copy of its model. The copy can be
+     * merged independently.
+     *
+     * @param model
+     *            the copy of the model
+     * @return a copy of this graph
+     */
+    public RegionGraph copy(GameModel model) {
+        return new RegionGraph(this, model);
+    }
+
+    /**
+     * (Re)builds the graph from the colors and captured dots of the model
+     */
+    public void build() {
+        size = model.getSize();
+        plane = model.getPlaneStatus();
+        orthogonal = model.getOrthogonalStatus();
+        int cells = size * size;
+        int[] neighbours = new int[8];
+
+        // connected-component labeling, in parallel on large boards
+        ComponentLabeling labeling = new ComponentLabeling(model);
+        label = labeling.getLabels();
+        regionCount = labeling.getComponentCount();
+        regionColor = new int[regionCount];
+        regionSize = new int[regionCount];
+        for (int r = 0; r < regionCount; r++) {
+            regionColor[r] = labeling.getComponentColor(r);
+            regionSize[r] = labeling.getComponentSize(r);
+        }
+
+        // dots sorted by region, to list the neighbours of each region once
+        int[] first = new int[regionCount + 1];
+        for (int dot = 0; dot < cells; dot++) first[label[dot] + 1]++;
+        for (int r = 0; r < regionCount; r++) first[r + 1] += first[r];
+        int[] next = first.clone();
+        int[] dots = new int[cells];
+        for (int dot = 0; dot < cells; dot++) dots[next[label[dot]]++] = dot;
+
+        int[] seen = new int[regionCount];
+        Arrays.fill(seen, -1);
+        adjacentStart = new int[regionCount + 1];
+        int[] edges = new int[16];
+        int edgeCount = 0;
+        for (int r = 0; r < regionCount; r++) {
+            adjacentStart[r] = edgeCount;
+            for (int k = first[r]; k < first[r + 1]; k++) {
+                int count = neighbours(dots[k], neighbours);
+                for (int m = 0; m < count; m++) {
+                    int other = label[neighbours[m]];
+                    if (other != r && seen[other] != r) {
+                        seen[other] = r;
+                        if (edgeCount == edges.length) edges = Arrays.copyOf(edges, 2 * edges.length);
+                        edges[edgeCount++] = other;
+                    }
+                }
+            }
+        }
+        adjacentStart[regionCount] = edgeCount;
+        adjacent = Arrays.copyOf(edges, edgeCount);
+
+        // captured region and its frontier
+        absorbed = new boolean[regionCount];
+        absorbedCount = 0;
+        slot = new int[regionCount];
+        Arrays.fill(slot, -1);
+        bucket = new int[GameModel.NUMBER_OF_COLORS][16];
+        bucketSize = new int[GameModel.NUMBER_OF_COLORS];
+        frontierDots = new int[GameModel.NUMBER_OF_COLORS];
+        for (int r = 0; r < regionCount; r++) {
+            if (model.isCaptured(dots[first[r]] / size, dots[first[r]] % size)) {
+                absorbed[r] = true;
+                absorbedCount++;
+            }
+        }
+        for (int r = 0; r < regionCount; r++) {
+            if (absorbed[r]) addNeighbours(r);
+        }
+    }
+
+    /**
+     * Adds the region of the dot (row,column) to the captured region. Used when
+     * the initial dot is selected.
+     *
+     * @param row
+     *            the row of the dot
+     * @param column
+     *            the column of the dot
+     */
+    public void captureInitialDot(int row, int column) {
+        int region = label[row * size + column];
+        if (absorbed[region]) return;
+        if (slot[region] >= 0) remove(region);
+        absorbed[region] = true;
+        absorbedCount++;
+        addNeighbours(region);
+    }
+
+    /**
+     * <b>merge</b> adds to the captured region all its neighbour regions of the
+     * given color, and updates the frontier accordingly. It must be called
+     * before the model itself is flooded. The graph is rebuilt first if the
+     * settings of the model changed.
+     *
+     * @param color
+     *            the selected color
+     * @return the number of dots captured
+     */
+    public int merge(int color) {
+        checkSettings();
+        int captured = frontierDots[color];
+        int count = bucketSize[color];
+        int[] regions = bucket[color];
+        bucketSize[color] = 0;
+        frontierDots[color] = 0;
+        for (int k = 0; k < count; k++) {
+            slot[regions[k]] = -1;
+            absorbed[regions[k]] = true;
+        }
+        absorbedCount += count;
+        // the neighbours of these regions are never of the selected color
+        for (int k = 0; k < count; k++) {
+            addNeighbours(regions[k]);
+        }
+        return captured;
+    }
+
+    /**
+     * Returns the total number of regions of the board, captured or not
+     *
+     * @return the number of regions
+     */
+    public int getRegionCount() {
+        checkSettings();
+        return regionCount;
+    }
+
+    /**
+     * Returns the number of regions that are not captured
+     *
+     * @return the number of uncaptured regions
+     */
+    public int getRemainingRegionCount() {
+        checkSettings();
+        return regionCount - absorbedCount;
+    }
+
+    /**
+     * Returns the number of dots of the given color next to the captured
+     * region, that is the number of dots selecting that color would capture
+     *
+     * @param color
+     *            the color
+     * @return the number of frontier dots of that color
+     */
+    public int getFrontierSize(int color) {
+        checkSettings();
+        return frontierDots[color];
+    }
+
+    /**
+     * Returns the number of regions of the given color next to the captured region
+     *
+     * @param color
+     *            the color
+     * @return the number of frontier regions of that color
+     */
+    public int getFrontierRegionCount(int color) {
+        checkSettings();
+        return bucketSize[color];
+    }
+
+    /**
+     * Returns the region of the dot (i,j)
+     *
+     * @param i
+     *            the row of the dot
+     * @param j
+     *            the column of the dot
+     * @return the region of the dot
+     */
+    public int getRegion(int i, int j) {
+        return label[i * size + j];
+    }
+
+    /**
+     * Returns the color of a region, as it was when the graph was built
+     *
+     * @param region
+     *            the region
+     * @return the color of the region
+     */
+    public int getRegionColor(int region) {
+        return regionColor[region];
+    }
+
+    /**
+     * Returns the number of dots of a region
+     *
+     * @param region
+     *            the region
+     * @return the number of dots of the region
+     */
+    public int getRegionSize(int region) {
+        return regionSize[region];
+    }
+
+    /**
+     * Returns true if the region is part of the captured region
+     *
+     * @param region
+     *            the region
+     * @return true if the region is captured
+     */
+    public boolean isCaptured(int region) {
+        return absorbed[region];
+    }
+
+    /**
+     * Returns a copy of the neighbour regions of a region
+     *
+     * @param region
+     *            the region
+     * @return the neighbours of the region
+     */
+    public int[] getNeighbours(int region) {
+        return Arrays.copyOfRange(adjacent, adjacentStart[region], adjacentStart[region + 1]);
+    }
+
+    /**
+     * Rebuilds the graph if the settings of the model changed since it was built
+     */
+    private void checkSettings() {
+        if (plane != model.getPlaneStatus() || orthogonal != model.getOrthogonalStatus()) {
+            build();
+        }
+    }
+
+    /**
+     * Puts on the frontier the neighbours of a captured region that are neither
+     * captured nor already on the frontier
+     */
+    private void addNeighbours(int region) {
+        for (int k = adjacentStart[region]; k < adjacentStart[region + 1]; k++) {
+            int n = adjacent[k];
+            if (absorbed[n] || slot[n] >= 0) continue;
+            int color = regionColor[n];
+            if (bucketSize[color] == bucket[color].length) {
+                bucket[color] = Arrays.copyOf(bucket[color], 2 * bucket[color].length);
+            }
+            slot[n] = bucketSize[color];
+            bucket[color][bucketSize[color]++] = n;
+            frontierDots[color] += regionSize[n];
+        }
+    }
+
+    /**
+     * Removes a region from the frontier
+     */
+    private void remove(int region) {
+        int color = regionColor[region];
+        int last = bucket[color][--bucketSize[color]];
+        bucket[color][slot[region]] = last;
+        slot[last] = slot[region];
+        slot[region] = -1;
+        frontierDots[color] -= regionSize[region];
+    }
+
+    /**
+     * Stores in the array out the packed indices of the neighbours of the dot
+     * at the packed index, according to the settings of the game
+     *
+     * @return the number of neighbours
+     */
+    private int neighbours(int dot, int[] out) {
+        return GameModel.neighbours(dot / size, dot % size, size, plane, orthogonal, out);
+    }
+}
@@ -0,0 +1,292 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+
+/**
+ * The class <b>SaveFormat</b> saves a <b>GameModel</b> in a compact binary file,
+ * instead of serializing the object. The file, in big-endian order, holds:
+ * - the magic number ``FLDT'' and the version of the format (short)
+ * - the flags (byte): plane, orthogonal and initial dot not selected yet
+ * - the size of the board, the number of steps (int), the selected color (byte),
+ *   the number of captured dots (int) and the seed of the board (long)
+ * - the colors of the dots, packed row-major 3 bits per dot, 21 dots per long
+ * - the captured dots, as a bit set of size*size bits, 64 per long
+ * - the CRC32 of all the preceding bytes (int)
+ * The captured dots must lie on the board and match their number in the header.
+ *
+ * A board of size 1000 takes about 500 KB. A file is written to a temporary file
+ * which then replaces the previous one, so a crash never leaves a partial save.
+ * Games saved by serialization in savedGame.ser can still be loaded.
+ */
+public class SaveFormat {
+
+    /**
+     * The file the game is saved to when the player quits
+     */
+    public static final String FILE = "savedGame.fit";
+
+    /**
+     * The file the previous versions saved the game to, by serialization
+     */
+    public static final String LEGACY_FILE = "savedGame.ser";
+
+    /**
+     * The magic number and the current version of the format
+     */
+    public static final int MAGIC = 0x464C4454;
+    public static final short VERSION = 1;
+
+    private static final int FLAG_PLANE = 1;
+    private static final int FLAG_ORTHOGONAL = 2;
+    private static final int FLAG_INITIAL_DOT = 4;
+
+    /**
+     * The size of the header, magic number included
+     */
+    private static final int HEADER_SIZE = 4 + 2 + 1 + 4 + 4 + 1 + 4 + 8;
+
+    /**
+     * The number of dots packed in a long
+     */
+    private static final int DOTS_PER_WORD = 21;
+
+    /**
+     * Encodes a model
+     *
+     * @param model
+     *            the model of the game
+     * @return a buffer holding the encoded model, from position 0 to its limit
+     */
+    public static ByteBuffer encode(GameModel model) {
+        int size = model.getSize();
+        int cells = size * size;
+        int colorWords = (cells + DOTS_PER_WORD - 1) / DOTS_PER_WORD;
+        int capturedWords = (cells + 63) >>> 6;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 8 * (colorWords + capturedWords) + 4);
+
+        int flags = (model.getPlaneStatus() ? FLAG_PLANE : 0)
+                | (model.getOrthogonalStatus() ? FLAG_ORTHOGONAL : 0)
+                | (model.getInitialDot() ? FLAG_INITIAL_DOT : 0);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.put((byte) flags);
+        buffer.putInt(size);
+        buffer.putInt(model.getNumberOfSteps());
+        buffer.put((byte) model.getCurrentSelectedColor());
+        buffer.putInt(model.getNumberCaptured());
+        buffer.putLong(model.getSeed());
+
+        byte[] colors = model.getColorArray();
+        for (int w = 0; w < colorWords; w++) {
+            long word = 0;
+            int end = Math.min(cells, (w + 1) * DOTS_PER_WORD);
+            for (int k = end - 1; k >= w * DOTS_PER_WORD; k--) {
+                word = (word << 3) | colors[k];
+            }
+            buffer.putLong(word);
+        }
+        long[] captured = model.getCapturedSet().toLongArray();
+        for (int w = 0; w < capturedWords; w++) {
+            buffer.putLong(w < captured.length ? captured[w] : 0L);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodes a model encoded by <b>encode</b>
+     *
+     * @param buffer
+     *            the encoded model, from its position to its limit
+     * @return the model
+     * @throws IOException
+     *             if the data is not a valid save of a supported version
+     */
+    public static GameModel decode(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_SIZE + 4 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a saved game");
+        }
+        short version = buffer.getShort();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported version " + version + " of saved game");
+        }
+        int flags = buffer.get();
+        int size = buffer.getInt();
+        int steps = buffer.getInt();
+        int color = buffer.get();
+        int numberCaptured = buffer.getInt();
+        long seed = buffer.getLong();
+        if (size <= 0 || size > 46340 || steps < 0 || color < 0
+                || color >= GameModel.NUMBER_OF_COLORS) {
+            throw new IOException("Corrupted saved game");
+        }
+
+        int cells = size * size;
+        int colorWords = (cells + DOTS_PER_WORD - 1) / DOTS_PER_WORD;
+        int capturedWords = (cells + 63) >>> 6;
+        long length = HEADER_SIZE + 8L * (colorWords + capturedWords) + 4;
+        if (buffer.limit() - start != length) {
+            throw new IOException("Corrupted saved game");
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer checked = buffer.duplicate();
+        checked.position(start).limit(buffer.limit() - 4);
+        crc.update(checked);
+        if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4)) {
+            throw new IOException("Corrupted saved game");
+        }
+
+        byte[] colors = new byte[cells];
+        for (int w = 0; w < colorWords; w++) {
+            long word = buffer.getLong();
+            int end = Math.min(cells, (w + 1) * DOTS_PER_WORD);
+            for (int k = w * DOTS_PER_WORD; k < end; k++) {
+                colors[k] = (byte) (word & 7);
+                if (colors[k] >= GameModel.NUMBER_OF_COLORS) {
+                    throw new IOException("Corrupted saved game");
+                }
+                word >>>= 3;
+            }
+        }
+        long[] words = new long[capturedWords];
+        for (int w = 0; w < capturedWords; w++) {
+            words[w] = buffer.getLong();
+        }
+        buffer.getInt();
+        // no dot past the board, and as many captured dots as counted
+        BitSet captured = BitSet.valueOf(words);
+        boolean initialDot = (flags & FLAG_INITIAL_DOT) != 0;
+        if (captured.length() > cells
+                || captured.cardinality() != (initialDot ? 0 : numberCaptured)) {
+            throw new IOException("Corrupted saved game");
+        }
+
+        GameModel model = new GameModel(size, seed, colors, captured);
+        model.setPlaneStatus((flags & FLAG_PLANE) != 0);
+        model.setOrthogonalStatus((flags & FLAG_ORTHOGONAL) != 0);
+        model.setInitialDot(initialDot);
+        model.setNumberOfSteps(steps);
+        model.setCurrentSelectedColor(color);
+        model.setNumberCaptured(numberCaptured);
+        return model;
+    }
+
+    /**
+     * Saves a model to a file, replacing it atomically
+     *
+     * @param model
+     *            the model of the game
+     * @param file
+     *            the file
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public static void write(GameModel model, Path file) throws IOException {
+        ByteBuffer buffer = encode(model);
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, "savedGame", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(false);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Loads a model saved by <b>write</b>
+     *
+     * @param file
+     *            the file
+     * @return the model
+     * @throws IOException
+     *             if the file cannot be read or is not a valid save
+     */
+    public static GameModel read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) throw new IOException("Not a saved game");
+            ByteBuffer buffer = ByteBuffer.allocate((int) length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) throw new IOException("Truncated saved game");
+            }
+            buffer.flip();
+            return decode(buffer);
+        }
+    }
+
+    /**
+     * Loads a model serialized by the previous versions of the game
+     *
+     * @param file
+     *            the file
+     * @return the model
+     * @throws IOException
+     *             if the file cannot be read or does not hold a model
+     */
+    public static GameModel readLegacy(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file);
+             ObjectInputStream input = new ObjectInputStream(in)) {
+            // an array cannot have more elements than the file has bytes, so a
+            // damaged length does not exhaust the heap
+            input.setObjectInputFilter(ObjectInputFilter.Config.createFilter(
+                    "maxarray=" + Files.size(file)));
+            return (GameModel) input.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Not a saved game", e);
+        } catch (RuntimeException e) {
+            // the fields read do not make a model
+            throw new IOException("Corrupted saved game", e);
+        }
+    }
+
+    /**
+     * Loads the game saved in the working directory, in FILE or else in
+     * LEGACY_FILE. The files are deleted once a game is loaded.
+     *
+     * @return the model, or null if there is no valid saved game
+     */
+    public static GameModel load() {
+        GameModel model;
+        try {
+            if (Files.exists(Paths.get(FILE))) {
+                model = read(Paths.get(FILE));
+            } else if (Files.exists(Paths.get(LEGACY_FILE))) {
+                model = readLegacy(Paths.get(LEGACY_FILE));
+            } else {
+                return null;
+            }
+        } catch (IOException e) {
+            System.err.println("Could not load the saved game: " + e.getMessage());
+            return null;
+        }
+        try {
+            Files.deleteIfExists(Paths.get(FILE));
+            Files.deleteIfExists(Paths.get(LEGACY_FILE));
+        } catch (IOException e) {
+            // the game would be loaded again at the next start
+            System.err.println("Could not delete the saved game: " + e.getMessage());
+        }
+        return model;
+    }
+}
@@ -0,0 +1,352 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The class <b>Solver</b> finds the minimum number of moves needed to capture the
+ * whole board of a <b>GameModel</b>, starting from its captured region and selected
+ * color, with any of the plane/torus and orthogonal/diagonal settings.
+ *
+ * The search works on the <b>RegionGraph</b> of the board, a state being the set of
+ * captured regions stored as a bit set. It is an iterative deepening A* (IDA*)
+ * with an admissible heuristic: since a move brings every uncaptured region at
+ * most one step closer to the captured region, after k moves the regions further
+ * than k steps are still uncaptured, so at least k moves plus one move per color
+ * among them are needed. This bound includes both the number of colors remaining
+ * (k = 0) and the eccentricity of the captured region in the graph.
+ *
+ * The transposition table records, for each state expanded, the number of moves
+ * that proved not enough to finish from it, so that it is not searched again with
+ * as few moves, in this iteration or the next ones. Its size is bounded: the least
+ * recently used states are evicted first. A move that captures all the remaining
+ * regions of its color is always played first, as it is part of an optimal solution.
+ */
+public class Solver {
+
+    /**
+     * The default number of states kept in the transposition table
+     */
+    public static final int DEFAULT_TABLE_SIZE = 1 << 20;
+
+    /**
+     * The regions of the board, and the number of words of a set of regions
+     */
+    private int regions;
+    private int words;
+    private int[] regionColor;
+    private int[] regionSize;
+
+    /**
+     * For each region the set of its neighbours, and for each color the set
+     * of regions of that color
+     */
+    private long[][] adjacencyMask;
+    private long[][] colorMask;
+
+    /**
+     * The state of the model the search starts from
+     */
+    private long[] startCaptured;
+    private long[] startFrontier;
+    private int startColor;
+
+    /**
+     * The transposition table: for each captured set expanded, the largest
+     * number of moves that was not enough to capture all the regions from it
+     */
+    private Map<State, Integer> table;
+
+    /**
+     * The search in progress
+     */
+    private int bound;
+    private int nextBound;
+    private int[] path;
+    private int length;
+    private long nodes;
+    private long deadline;
+
+    /**
+     * Scratch arrays of the heuristic
+     */
+    private long[] visited;
+    private long[] layer;
+    private long[] next;
+    private int[] levelColors;
+
+    /**
+     * Constructor used for initializing a solver for the current state of a
+     * model, with a transposition table of default size.
+     *
+     * @param model
+     *            the model of the game, whose initial dot must be selected
+     */
+    public Solver(GameModel model) {
+        this(model, DEFAULT_TABLE_SIZE);
+    }
+
+    /**
+     * Constructor used for initializing a solver for the current state of a
+     * model.
+     *
+     * @param model
+     *            the model of the game, whose initial dot must be selected
+     * @param tableSize
+     *            the maximum number of states kept in the transposition table
+     */
+    public Solver(GameModel model, final int tableSize) {
+        if (model.getInitialDot()) {
+            throw new IllegalStateException("The initial dot must be selected");
+        }
+        RegionGraph graph = new RegionGraph(model);
+        regions = graph.getRegionCount();
+        words = (regions + 63) >>> 6;
+        regionColor = new int[regions];
+        regionSize = new int[regions];
+        adjacencyMask = new long[regions][words];
+        colorMask = new long[GameModel.NUMBER_OF_COLORS][words];
+        startCaptured = new long[words];
+        startFrontier = new long[words];
+        for (int r = 0; r < regions; r++) {
+            regionColor[r] = graph.getRegionColor(r);
+            regionSize[r] = graph.getRegionSize(r);
+            for (int n : graph.getNeighbours(r)) set(adjacencyMask[r], n);
+            if (graph.isCaptured(r)) {
+                set(startCaptured, r);
+            } else {
+                set(colorMask[regionColor[r]], r);
+            }
+        }
+        for (int r = 0; r < regions; r++) {
+            if (graph.isCaptured(r)) or(startFrontier, adjacencyMask[r]);
+        }
+        andNot(startFrontier, startCaptured);
+        startColor = model.getCurrentSelectedColor();
+
+        table = new LinkedHashMap<State, Integer>(1024, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<State, Integer> eldest) {
+                return size() > tableSize;
+            }
+        };
+        visited = new long[words];
+        layer = new long[words];
+        next = new long[words];
+        levelColors = new int[regions + 1];
+    }
+
+    /**
+     * Finds an optimal sequence of moves, without time limit
+     *
+     * @return the colors to select, in order
+     */
+    public int[] solve() {
+        return solve(0);
+    }
+
+    /**
+     * Finds an optimal sequence of moves
+     *
+     * @param timeLimit
+     *            the maximum duration of the search in milliseconds, 0 for none
+     * @return the colors to select, in order, or null if the time ran out
+     */
+    public int[] solve(long timeLimit) {
+        deadline = timeLimit > 0 ? System.currentTimeMillis() + timeLimit : Long.MAX_VALUE;
+        nodes = 0;
+        table.clear();
+        bound = heuristic(startCaptured, startFrontier);
+        while (true) {
+            path = new int[bound];
+            nextBound = Integer.MAX_VALUE;
+            try {
+                if (search(startCaptured, startFrontier, startColor, 0)) {
+                    return Arrays.copyOf(path, length);
+                }
+            } catch (TimeoutException e) {
+                return null;
+            }
+            bound = nextBound;
+        }
+    }
+
+    /**
+     * Getter method for the number of states expanded by the last search
+     *
+     * @return the number of states expanded
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Searches a solution of at most bound moves from a state reached in
+     * depth moves, and stores its colors in path
+     */
+    private boolean search(long[] captured, long[] frontier, int color, int depth) {
+        if (isEmpty(frontier)) {
+            length = depth;
+            return true;
+        }
+        int estimate = depth + heuristic(captured, frontier);
+        if (estimate > bound) {
+            nextBound = Math.min(nextBound, estimate);
+            return false;
+        }
+        if ((++nodes & 0xFFF) == 0 && System.currentTimeMillis() > deadline) {
+            throw new TimeoutException();
+        }
+        // the state cannot be met again below itself, so it is recorded as
+        // failed before its search completes
+        State state = new State(captured);
+        Integer failed = table.get(state);
+        if (failed != null && failed >= bound - depth) return false;
+        table.put(state, bound - depth);
+
+        // the colors to try, the best gains first
+        int[] colors = new int[GameModel.NUMBER_OF_COLORS];
+        int[] gains = new int[GameModel.NUMBER_OF_COLORS];
+        int count = 0;
+        for (int c = 0; c < GameModel.NUMBER_OF_COLORS; c++) {
+            if (c == color) continue;
+            int gain = 0;
+            boolean eliminates = true;
+            for (int w = 0; w < words; w++) {
+                long taken = frontier[w] & colorMask[c][w];
+                if ((colorMask[c][w] & ~captured[w] & ~taken) != 0) eliminates = false;
+                for (long bits = taken; bits != 0; bits &= bits - 1) {
+                    gain += regionSize[(w << 6) + Long.numberOfTrailingZeros(bits)];
+                }
+            }
+            if (gain == 0) continue;
+            if (eliminates) {
+                colors[0] = c;
+                count = 1;
+                break;
+            }
+            int k = count++;
+            while (k > 0 && gains[k - 1] < gain) {
+                colors[k] = colors[k - 1];
+                gains[k] = gains[k - 1];
+                k--;
+            }
+            colors[k] = c;
+            gains[k] = gain;
+        }
+
+        for (int k = 0; k < count; k++) {
+            int c = colors[k];
+            long[] nextCaptured = captured.clone();
+            long[] nextFrontier = frontier.clone();
+            for (int w = 0; w < words; w++) {
+                long taken = frontier[w] & colorMask[c][w];
+                nextCaptured[w] |= taken;
+                for (long bits = taken; bits != 0; bits &= bits - 1) {
+                    or(nextFrontier, adjacencyMask[(w << 6) + Long.numberOfTrailingZeros(bits)]);
+                }
+            }
+            andNot(nextFrontier, nextCaptured);
+            path[depth] = c;
+            if (search(nextCaptured, nextFrontier, c, depth + 1)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a lower bound of the number of moves needed to capture all the
+     * regions: the maximum over k of k plus the number of colors of the
+     * regions further than k steps from the captured ones. The regions are
+     * visited by layers of increasing distance, starting from the frontier.
+     */
+    private int heuristic(long[] captured, long[] frontier) {
+        long[] visited = this.visited;
+        long[] layer = this.layer;
+        long[] next = this.next;
+        int depth = 0;
+        for (int w = 0; w < words; w++) {
+            visited[w] = captured[w] | frontier[w];
+            layer[w] = frontier[w];
+        }
+        while (!isEmpty(layer)) {
+            depth++;
+            levelColors[depth] = 0;
+            for (int c = 0; c < GameModel.NUMBER_OF_COLORS; c++) {
+                if (intersects(layer, colorMask[c])) levelColors[depth] |= 1 << c;
+            }
+            Arrays.fill(next, 0);
+            for (int w = 0; w < words; w++) {
+                for (long bits = layer[w]; bits != 0; bits &= bits - 1) {
+                    or(next, adjacencyMask[(w << 6) + Long.numberOfTrailingZeros(bits)]);
+                }
+            }
+            andNot(next, visited);
+            or(visited, next);
+            long[] swap = layer;
+            layer = next;
+            next = swap;
+        }
+        int best = 0;
+        int colors = 0;
+        for (int d = depth; d >= 1; d--) {
+            colors |= levelColors[d];
+            best = Math.max(best, d - 1 + Integer.bitCount(colors));
+        }
+        return best;
+    }
+
+    private static boolean intersects(long[] bits, long[] other) {
+        for (int w = 0; w < bits.length; w++) {
+            if ((bits[w] & other[w]) != 0) return true;
+        }
+        return false;
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static void or(long[] bits, long[] other) {
+        for (int w = 0; w < bits.length; w++) bits[w] |= other[w];
+    }
+
+    private static void andNot(long[] bits, long[] other) {
+        for (int w = 0; w < bits.length; w++) bits[w] &= ~other[w];
+    }
+
+    private static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * A set of captured regions, used as key of the transposition table
+     */
+    private static class State {
+
+        private long[] captured;
+        private int hash;
+
+        private State(long[] captured) {
+            this.captured = captured;
+            hash = Arrays.hashCode(captured);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object other) {
+            return other instanceof State && Arrays.equals(captured, ((State) other).captured);
+        }
+    }
+
+    /**
+     * Thrown to abandon a search that ran out of time
+     */
+    private static class TimeoutException extends RuntimeException {
+        private TimeoutException() {
+            super(null, null, false, false);
+        }
+    }
+}
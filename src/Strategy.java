@@ -0,0 +1,83 @@
+import java.util.Random;
+
+/**
+ * A <b>Strategy</b> is a player: it chooses the next color of a game from a
+ * read-only <b>BoardView</b> of it. Strategies are shared by the threads of a
+ * <b>Tournament</b>, so they must not keep any state between calls; the random
+ * generator passed is specific to the game.
+ *
+ * GREEDY, MAX_FRONTIER and RANDOM are the built-in strategies.
+ */
+public interface Strategy {
+
+    /**
+     * Plays the color capturing the most dots, or among those the one with
+     * the most dots next to the captured region
+     */
+    public static final Strategy GREEDY = new Strategy() {
+        public int nextColor(BoardView board, Random random) {
+            int best = -1;
+            int bestGain = -1;
+            for (int color = 0; color < GameModel.NUMBER_OF_COLORS; color++) {
+                if (color == board.getCurrentSelectedColor()) continue;
+                int gain = board.getGain(color);
+                if (gain > bestGain || gain == bestGain
+                        && board.getFrontierSize(color) > board.getFrontierSize(best)) {
+                    best = color;
+                    bestGain = gain;
+                }
+            }
+            return best;
+        }
+
+        public String toString() {
+            return "greedy";
+        }
+    };
+
+    /**
+     * Plays the color with the most dots next to the captured region
+     */
+    public static final Strategy MAX_FRONTIER = new Strategy() {
+        public int nextColor(BoardView board, Random random) {
+            int best = -1;
+            for (int color = 0; color < GameModel.NUMBER_OF_COLORS; color++) {
+                if (color == board.getCurrentSelectedColor()) continue;
+                if (best < 0 || board.getFrontierSize(color) > board.getFrontierSize(best)) best = color;
+            }
+            return best;
+        }
+
+        public String toString() {
+            return "max-frontier";
+        }
+    };
+
+    /**
+     * Plays a random color, different from the selected one
+     */
+    public static final Strategy RANDOM = new Strategy() {
+        public int nextColor(BoardView board, Random random) {
+            int color = random.nextInt(GameModel.NUMBER_OF_COLORS - 1);
+            if (color >= board.getCurrentSelectedColor()) color++;
+            return color;
+        }
+
+        public String toString() {
+            return "random";
+        }
+    };
+
+    /**
+     * Chooses the next color to play. The initial dot is already selected and
+     * the game is not finished.
+     *
+     * @param board
+     *            the view of the game
+     * @param random
+     *            the random generator of the game
+     * @return the color to play, different from the selected one
+     */
+    public abstract int nextColor(BoardView board, Random random);
+
+}
@@ -0,0 +1,383 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The class <b>TiledBoard</b> holds the board of a game too large for
+ * <b>GameModel</b>, up to 46340x46340 dots. The board is cut into the tiles of a
+ * <b>BoardGenerator</b>, and a tile is only generated the first time one of its
+ * dots is read or captured, so a game only materializes the tiles its captured
+ * region and frontier reach. The board is the one a <b>GameModel</b> of the same
+ * size and seed holds.
+ *
+ * The tiles are stored outside of the heap, in segments of SEGMENT_TILES tiles
+ * allocated when needed, either as direct buffers or mapped from a file. Each
+ * tile takes TILE_BYTES bytes: the color of each dot (byte), then the captured
+ * dots and the dots marked by <b>TiledFlood</b>, one bit per dot.
+ *
+ * The board offers the getColor/isCaptured/capture methods of <b>GameModel</b>.
+ * It is played with a <b>TiledFlood</b>.
+ */
+public class TiledBoard implements Closeable {
+
+    /**
+     * The number of tiles of a segment
+     */
+    public static final int SEGMENT_TILES = 256;
+
+    /**
+     * The number of bytes of a tile
+     */
+    public static final int TILE_BYTES = BoardGenerator.TILE_SIZE * BoardGenerator.TILE_SIZE * 5 / 4;
+
+    private static final int TILE_DOTS = BoardGenerator.TILE_SIZE * BoardGenerator.TILE_SIZE;
+    private static final int CAPTURED_OFFSET = TILE_DOTS;
+    private static final int MARKED_OFFSET = TILE_DOTS + TILE_DOTS / 8;
+
+    private int size;
+    private long seed;
+    private boolean plane;
+    private boolean orthogonal;
+
+    private BoardGenerator generator;
+    private int tilesPerSide;
+
+    /**
+     * The slot of each tile in the segments, or -1 if it is not materialized
+     */
+    private int[] slots;
+    private int materialized;
+
+    /**
+     * The segments of slots, allocated when needed
+     */
+    private ByteBuffer[] segments;
+    private int allocated;
+
+    /**
+     * The file the segments are mapped from, or null for direct buffers
+     */
+    private FileChannel channel;
+
+    /**
+     * Scratch array receiving the colors of a tile being generated
+     */
+    private byte[] scratch = new byte[TILE_DOTS];
+
+    private int currentSelectedColor;
+    private int numberOfSteps;
+    private long numberCaptured;
+
+    /**
+     * Constructor used for initializing a board stored in direct buffers
+     *
+     * @param size
+     *            the size of the board
+     * @param seed
+     *            the seed of the board
+     * @param plane
+     *            true for plane, false for torus
+     * @param orthogonal
+     *            true for orthogonal, false for diagonal
+     */
+    public TiledBoard(int size, long seed, boolean plane, boolean orthogonal) {
+        if (size <= 0 || size > 46340) throw new IllegalArgumentException("Invalid size " + size);
+        this.size = size;
+        this.seed = seed;
+        this.plane = plane;
+        this.orthogonal = orthogonal;
+        generator = new BoardGenerator(seed, size);
+        tilesPerSide = generator.getTilesPerSide();
+        slots = new int[tilesPerSide * tilesPerSide];
+        Arrays.fill(slots, -1);
+        segments = new ByteBuffer[(slots.length + SEGMENT_TILES - 1) / SEGMENT_TILES];
+        numberCaptured = 1;
+    }
+
+    /**
+     * Constructor used for initializing a board stored in a file mapped in
+     * memory. The file is overwritten, and grows as tiles are materialized.
+     *
+     * @param size
+     *            the size of the board
+     * @param seed
+     *            the seed of the board
+     * @param plane
+     *            true for plane, false for torus
+     * @param orthogonal
+     *            true for orthogonal, false for diagonal
+     * @param file
+     *            the file storing the tiles
+     * @throws IOException
+     *             if the file cannot be opened
+     */
+    public TiledBoard(int size, long seed, boolean plane, boolean orthogonal, Path file)
+            throws IOException {
+        this(size, seed, plane, orthogonal);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Getter method for the size of the board
+     *
+     * @return the size of the board
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Getter method for the seed the board was generated from
+     *
+     * @return the seed of the board
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Getter method for the plane/torus setting
+     *
+     * @return true for plane, false for torus
+     */
+    public boolean getPlaneStatus() {
+        return plane;
+    }
+
+    /**
+     * Getter method for the orthogonal/diagonal setting
+     *
+     * @return true for orthogonal, false for diagonal
+     */
+    public boolean getOrthogonalStatus() {
+        return orthogonal;
+    }
+
+    /**
+     * returns the color of a given dot, the selected color if it is captured.
+     * Materializes its tile.
+     *
+     * @param i
+     *            the x coordinate of the dot
+     * @param j
+     *            the y coordinate of the dot
+     * @return the color of the dot at location (i,j)
+     */
+    public int getColor(int i, int j) {
+        int slot = slot(i, j);
+        int dot = dot(i, j);
+        ByteBuffer segment = segments[slot / SEGMENT_TILES];
+        int base = (slot % SEGMENT_TILES) * TILE_BYTES;
+        if ((segment.get(base + CAPTURED_OFFSET + (dot >>> 3)) & (1 << (dot & 7))) != 0) {
+            return currentSelectedColor;
+        }
+        return segment.get(base + dot);
+    }
+
+    /**
+     * returns true is the dot is captured, false otherwise. Does not
+     * materialize its tile.
+     *
+     * @param i
+     *            the x coordinate of the dot
+     * @param j
+     *            the y coordinate of the dot
+     * @return the status of the dot at location (i,j)
+     */
+    public boolean isCaptured(int i, int j) {
+        return getBit(i, j, CAPTURED_OFFSET);
+    }
+
+    /**
+     * Sets the status of the dot at coordinate (i,j) to captured
+     *
+     * @param i
+     *            the x coordinate of the dot
+     * @param j
+     *            the y coordinate of the dot
+     */
+    public void capture(int i, int j) {
+        setBit(i, j, CAPTURED_OFFSET);
+        numberCaptured++;
+    }
+
+    /**
+     * Captures the initial dot, and selects its color
+     *
+     * @param row
+     *            the x coordinate of the dot
+     * @param column
+     *            the y coordinate of the dot
+     */
+    public void captureInitialDot(int row, int column) {
+        currentSelectedColor = getColor(row, column);
+        setBit(row, column, CAPTURED_OFFSET);
+    }
+
+    /**
+     * Setter method for the selected color
+     *
+     * @param color
+     *            the new selected color
+     */
+    public void setCurrentSelectedColor(int color) {
+        currentSelectedColor = color;
+    }
+
+    /**
+     * Getter method for the selected color
+     *
+     * @return the selected color
+     */
+    public int getCurrentSelectedColor() {
+        return currentSelectedColor;
+    }
+
+    /**
+     * Counts one step
+     */
+    public void step() {
+        numberOfSteps++;
+    }
+
+    /**
+     * Getter method for the number of steps
+     *
+     * @return the number of steps
+     */
+    public int getNumberOfSteps() {
+        return numberOfSteps;
+    }
+
+    /**
+     * Getter method for the number of captured dots
+     *
+     * @return the number of captured dots
+     */
+    public long getNumberCaptured() {
+        return numberCaptured;
+    }
+
+    /**
+     * returns true if all the dots are captured
+     *
+     * @return true if the game is finished, false otherwise
+     */
+    public boolean isFinished() {
+        return numberCaptured == (long) size * size;
+    }
+
+    /**
+     * Getter method for the number of tiles generated so far
+     *
+     * @return the number of materialized tiles
+     */
+    public int getMaterializedTiles() {
+        return materialized;
+    }
+
+    /**
+     * Getter method for the number of tiles of the board
+     *
+     * @return the number of tiles
+     */
+    public int getTileCount() {
+        return slots.length;
+    }
+
+    /**
+     * Getter method for the memory allocated outside of the heap
+     *
+     * @return the number of bytes of the allocated segments
+     */
+    public long getOffHeapBytes() {
+        return (long) allocated * SEGMENT_TILES * TILE_BYTES;
+    }
+
+    /**
+     * Closes the mapped file, if any. The board cannot be used afterwards.
+     */
+    public void close() throws IOException {
+        if (channel != null) channel.close();
+    }
+
+    /**
+     * returns true if the dot was marked by <b>mark</b>. Used by
+     * <b>TiledFlood</b> for the dots of the frontier.
+     */
+    boolean isMarked(int i, int j) {
+        return getBit(i, j, MARKED_OFFSET);
+    }
+
+    /**
+     * Marks the dot (i,j)
+     */
+    void mark(int i, int j) {
+        setBit(i, j, MARKED_OFFSET);
+    }
+
+    private boolean getBit(int i, int j, int offset) {
+        int slot = slots[(i / BoardGenerator.TILE_SIZE) * tilesPerSide + j / BoardGenerator.TILE_SIZE];
+        if (slot < 0) return false;
+        int dot = dot(i, j);
+        int index = (slot % SEGMENT_TILES) * TILE_BYTES + offset + (dot >>> 3);
+        return (segments[slot / SEGMENT_TILES].get(index) & (1 << (dot & 7))) != 0;
+    }
+
+    private void setBit(int i, int j, int offset) {
+        int slot = slot(i, j);
+        int dot = dot(i, j);
+        ByteBuffer segment = segments[slot / SEGMENT_TILES];
+        int index = (slot % SEGMENT_TILES) * TILE_BYTES + offset + (dot >>> 3);
+        segment.put(index, (byte) (segment.get(index) | (1 << (dot & 7))));
+    }
+
+    /**
+     * Returns the index of the dot (i,j) in its tile
+     */
+    private static int dot(int i, int j) {
+        return (i % BoardGenerator.TILE_SIZE) * BoardGenerator.TILE_SIZE + j % BoardGenerator.TILE_SIZE;
+    }
+
+    /**
+     * Returns the slot of the tile of the dot (i,j), materializing the tile
+     * if needed
+     */
+    private int slot(int i, int j) {
+        int tileRow = i / BoardGenerator.TILE_SIZE;
+        int tileColumn = j / BoardGenerator.TILE_SIZE;
+        int tile = tileRow * tilesPerSide + tileColumn;
+        if (slots[tile] >= 0) return slots[tile];
+
+        int slot = materialized++;
+        if (slot % SEGMENT_TILES == 0) allocate(slot / SEGMENT_TILES);
+        generator.fillTile(tileRow, tileColumn, scratch, 0, BoardGenerator.TILE_SIZE);
+        ByteBuffer segment = segments[slot / SEGMENT_TILES];
+        segment.put((slot % SEGMENT_TILES) * TILE_BYTES, scratch, 0, TILE_DOTS);
+        slots[tile] = slot;
+        return slot;
+    }
+
+    /**
+     * Allocates a segment of slots, zeroed
+     */
+    private void allocate(int index) {
+        int length = SEGMENT_TILES * TILE_BYTES;
+        if (channel == null) {
+            segments[index] = ByteBuffer.allocateDirect(length);
+        } else {
+            try {
+                segments[index] = channel.map(FileChannel.MapMode.READ_WRITE, (long) index * length, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        allocated++;
+    }
+}
@@ -0,0 +1,220 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * The class <b>TiledFlood</b> plays a game on a <b>TiledBoard</b>. Like
+ * <b>FrontierFlood</b>, it keeps the frontier of the captured region bucketed by
+ * color, so that selecting a color only visits the matching bucket and the dots
+ * it leads to. The frontier is never rebuilt with a scan of the board: it is
+ * extended as the region grows, the dots of the frontier being marked on the
+ * board. Only the tiles of the captured region and of its frontier are thus ever
+ * materialized.
+ *
+ * The frontier holds packed indices row*size+column, so its memory grows with
+ * the perimeter of the captured region and not with the size of the board.
+ */
+public class TiledFlood {
+
+    private TiledBoard board;
+    private int size;
+    private boolean plane;
+    private boolean orthogonal;
+
+    /**
+     * For each color, the dots of the frontier of that color, as packed
+     * indices row*size+column. Only the first bucketSize[color] are used.
+     */
+    private int[][] bucket;
+    private int[] bucketSize;
+
+    /**
+     * The captured dots whose neighbours are not visited yet
+     */
+    private IntStack stack = new IntStack();
+
+    /**
+     * Scratch array receiving the neighbours of a dot
+     */
+    private int[] neighbours = new int[8];
+
+    /**
+     * Constructor used for initializing the flood of a board. The initial
+     * dot must then be selected with <b>start</b>.
+     *
+     * @param board
+     *            the board of the game
+     */
+    public TiledFlood(TiledBoard board) {
+        this.board = board;
+        size = board.getSize();
+        plane = board.getPlaneStatus();
+        orthogonal = board.getOrthogonalStatus();
+        bucket = new int[GameModel.NUMBER_OF_COLORS][16];
+        bucketSize = new int[GameModel.NUMBER_OF_COLORS];
+    }
+
+    /**
+     * Selects the initial dot, and captures the dots of its color connected
+     * to it
+     *
+     * @param row
+     *            the row of the dot
+     * @param column
+     *            the column of the dot
+     * @return the number of dots captured, the initial dot included
+     */
+    public int start(int row, int column) {
+        board.captureInitialDot(row, column);
+        stack.pushInt(row * size + column);
+        return flood(board.getCurrentSelectedColor()) + 1;
+    }
+
+    /**
+     * <b>apply</b> selects a new color, captures the dots of that color
+     * connected to the captured region and counts one step. Does nothing if
+     * the color is the selected one.
+     *
+     * @param color
+     *            the newly selected color
+     * @return the number of dots captured
+     */
+    public int apply(int color) {
+        if (color == board.getCurrentSelectedColor()) return 0;
+        board.setCurrentSelectedColor(color);
+        int captured = 0;
+        int[] dots = bucket[color];
+        for (int k = 0; k < bucketSize[color]; k++) {
+            int i = dots[k] / size;
+            int j = dots[k] % size;
+            if (board.isCaptured(i, j)) continue;
+            board.capture(i, j);
+            stack.pushInt(dots[k]);
+            captured++;
+        }
+        bucketSize[color] = 0;
+        captured += flood(color);
+        board.step();
+        return captured;
+    }
+
+    /**
+     * Returns the number of dots of the given color on the frontier
+     *
+     * @param color
+     *            the color
+     * @return the number of frontier dots of that color
+     */
+    public int getFrontierSize(int color) {
+        return bucketSize[color];
+    }
+
+    /**
+     * Visits the neighbours of the dots of the stack, capturing the ones of
+     * the given color and adding the others to the frontier
+     *
+     * @return the number of dots captured
+     */
+    private int flood(int color) {
+        int captured = 0;
+        while (!stack.isEmpty()) {
+            int dot = stack.popInt();
+            int count = neighbours(dot / size, dot % size);
+            for (int k = 0; k < count; k++) {
+                int i = neighbours[k] / size;
+                int j = neighbours[k] % size;
+                if (board.isCaptured(i, j)) continue;
+                int c = board.getColor(i, j);
+                if (c == color) {
+                    board.capture(i, j);
+                    stack.pushInt(neighbours[k]);
+                    captured++;
+                } else if (!board.isMarked(i, j)) {
+                    board.mark(i, j);
+                    add(neighbours[k], c);
+                }
+            }
+        }
+        return captured;
+    }
+
+    /**
+     * Adds the dot at the packed index to the bucket of its color
+     */
+    private void add(int index, int color) {
+        if (bucketSize[color] == bucket[color].length) {
+            bucket[color] = Arrays.copyOf(bucket[color], 2 * bucket[color].length);
+        }
+        bucket[color][bucketSize[color]++] = index;
+    }
+
+    /**
+     * Stores the packed indices of the neighbours of the dot (i,j), according
+     * to the settings of the board
+     *
+     * @return the number of neighbours
+     */
+    private int neighbours(int i, int j) {
+        return GameModel.neighbours(i, j, size, plane, orthogonal, neighbours);
+    }
+
+    /**
+     * Runs a stress test on a large tiled board: from the top left dot, plays
+     * the color with the largest frontier for a number of moves, then reports
+     * the captured dots, the materialized tiles, the memory used and the time.
+     * The parameters are the size of the board (20000 by default) and the
+     * number of moves (200 by default). The seed can be set with the system
+     * property floodit.seed, and the tiles are mapped from the file given by
+     * the system property floodit.tiles, deleted afterwards, instead of
+     * direct buffers.
+     *
+     * @param args
+     *            command line parameters
+     */
+    public static void main(String[] args) {
+        int size = 20000;
+        int moves = 200;
+        try {
+            if (args.length > 0) size = Integer.parseInt(args[0]);
+            if (args.length > 1) moves = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            System.out.println("Usage: stress [size [moves]]");
+            return;
+        }
+        long seed = Long.getLong("floodit.seed", 0L);
+        String file = System.getProperty("floodit.tiles");
+
+        long time = System.nanoTime();
+        try (TiledBoard board = file == null ? new TiledBoard(size, seed, true, true)
+                : new TiledBoard(size, seed, true, true, Paths.get(file))) {
+            TiledFlood flood = new TiledFlood(board);
+            flood.start(0, 0);
+            for (int move = 0; move < moves && !board.isFinished(); move++) {
+                int best = 0;
+                for (int color = 1; color < GameModel.NUMBER_OF_COLORS; color++) {
+                    if (flood.getFrontierSize(color) > flood.getFrontierSize(best)) best = color;
+                }
+                flood.apply(best);
+            }
+            time = System.nanoTime() - time;
+
+            Runtime runtime = Runtime.getRuntime();
+            System.out.printf("Board %dx%d, seed %d, %d moves: %d dots captured%n", size, size, seed,
+                    board.getNumberOfSteps(), board.getNumberCaptured());
+            System.out.printf("Tiles: %d of %d materialized, %.1f MB off heap, %.1f MB of heap used%n",
+                    board.getMaterializedTiles(), board.getTileCount(),
+                    board.getOffHeapBytes() / 1048576.0,
+                    (runtime.totalMemory() - runtime.freeMemory()) / 1048576.0);
+            System.out.printf("Time: %.2f s%n", time / 1e9);
+        } catch (IOException e) {
+            System.out.println("Could not map the tiles: " + e.getMessage());
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(Paths.get(file));
+                } catch (IOException e) { }
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The class <b>Tournament</b> plays a number of <b>Strategy</b> players against
+ * the same boards, and compares the number of moves they need to finish a game.
+ * Every strategy plays every board of the set: the boards are generated from the
+ * seed of the tournament and the number of the game, by a <b>BatchSimulator</b>,
+ * which plays the games over the threads of a fork-join pool. The strategies are
+ * played one after the other on the same simulator, so that each of them has all
+ * the cores and its wall time can be compared.
+ */
+public class Tournament {
+
+    /**
+     * The result of a strategy on a set of boards
+     */
+    public static class Result {
+
+        private Strategy strategy;
+        private MoveStatistics statistics;
+        private long nanos;
+
+        private Result(Strategy strategy, MoveStatistics statistics, long nanos) {
+            this.strategy = strategy;
+            this.statistics = statistics;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Getter method for the strategy
+         *
+         * @return the strategy
+         */
+        public Strategy getStrategy() {
+            return strategy;
+        }
+
+        /**
+         * Getter method for the statistics of the moves per game
+         *
+         * @return the statistics
+         */
+        public MoveStatistics getStatistics() {
+            return statistics;
+        }
+
+        /**
+         * Getter method for the wall time taken to play the games
+         *
+         * @return the wall time in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    private List<Strategy> strategies;
+    private List<MovePolicy> policies;
+    private BatchSimulator simulator;
+    private long seed;
+    private int parallelism;
+
+    /**
+     * Constructor used for initializing a tournament
+     *
+     * @param strategies
+     *            the strategies playing
+     * @param seed
+     *            the seed from which the boards are generated
+     * @param parallelism
+     *            the number of threads playing games
+     */
+    public Tournament(List<Strategy> strategies, long seed, int parallelism) {
+        this.strategies = new ArrayList<Strategy>(strategies);
+        this.seed = seed;
+        this.parallelism = parallelism;
+        policies = new ArrayList<MovePolicy>();
+        for (Strategy strategy : this.strategies) policies.add(BatchSimulator.policy(strategy));
+        simulator = new BatchSimulator(seed, parallelism);
+    }
+
+    /**
+     * Plays every strategy on the same boards of one size and setting
+     *
+     * @param size
+     *            the size of the boards
+     * @param plane
+     *            true for plane, false for torus
+     * @param orthogonal
+     *            true for orthogonal, false for diagonal
+     * @param games
+     *            the number of boards
+     * @return the result of each strategy, in the order of the strategies
+     */
+    public List<Result> run(int size, boolean plane, boolean orthogonal, long games) {
+        List<Result> results = new ArrayList<Result>();
+        for (int k = 0; k < strategies.size(); k++) {
+            long start = System.nanoTime();
+            MoveStatistics statistics = simulator.run(policies.get(k), size, plane, orthogonal, games);
+            results.add(new Result(strategies.get(k), statistics, System.nanoTime() - start));
+        }
+        return results;
+    }
+
+    /**
+     * Plays the given number of boards for each size and each setting, and
+     * prints the mean, median and 99th percentile of the moves per game and
+     * the wall time of each strategy
+     *
+     * @param sizes
+     *            the sizes of the boards
+     * @param games
+     *            the number of boards per size and setting
+     * @param out
+     *            the stream the report is printed on
+     */
+    public void report(int[] sizes, long games, PrintStream out) {
+        out.println(strategies.size() + " strategies, " + games + " boards per series, seed "
+                + seed + ", " + parallelism + " threads");
+        for (int size : sizes) {
+            for (int mode = 0; mode < 4; mode++) {
+                boolean plane = mode < 2;
+                boolean orthogonal = mode % 2 == 0;
+                out.printf("%nsize %d, %s, %s%n", size,
+                        plane ? "plane" : "torus", orthogonal ? "orthogonal" : "diagonal");
+                out.printf("%-14s %8s %8s %8s %10s%n", "strategy", "mean", "median", "p99", "time (s)");
+                for (Result result : run(size, plane, orthogonal, games)) {
+                    MoveStatistics statistics = result.getStatistics();
+                    out.printf("%-14s %8.2f %8d %8d %10.3f%n", result.getStrategy(),
+                            statistics.getMean(), statistics.getPercentile(0.5),
+                            statistics.getPercentile(0.99), result.getNanos() / 1e9);
+                }
+            }
+        }
+    }
+
+    /**
+     * Shuts down the threads of the tournament
+     */
+    public void shutdown() {
+        simulator.shutdown();
+    }
+
+    /**
+     * Runs a tournament of the built-in strategies. The parameters are the
+     * number of boards per size and setting, followed by the sizes of the
+     * boards. The seed and the number of threads can be set with the system
+     * properties floodit.seed and floodit.threads.
+     *
+     * @param args
+     *            command line parameters
+     */
+    public static void main(String[] args) {
+        long games = 1000;
+        int[] sizes = {10, 14, 18};
+        try {
+            if (args.length > 0) games = Long.parseLong(args[0]);
+            if (args.length > 1) {
+                sizes = new int[args.length - 1];
+                for (int k = 1; k < args.length; k++) sizes[k - 1] = Integer.parseInt(args[k]);
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Usage: tournament [games [size ...]]");
+            return;
+        }
+        long seed = Long.getLong("floodit.seed", 0L);
+        int threads = Integer.getInteger("floodit.threads", Runtime.getRuntime().availableProcessors());
+        List<Strategy> strategies = new ArrayList<Strategy>();
+        strategies.add(Strategy.GREEDY);
+        strategies.add(Strategy.MAX_FRONTIER);
+        strategies.add(Strategy.RANDOM);
+        Tournament tournament = new Tournament(strategies, seed, threads);
+        tournament.report(sizes, games, System.out);
+        tournament.shutdown();
+    }
+}